@@ -0,0 +1,406 @@
+package com.powerje.sudoku.bench;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.powerje.sudoku.BitBoard;
+import com.powerje.sudoku.Board;
+import com.powerje.sudoku.Difficulty;
+import com.powerje.sudoku.Generator;
+import com.powerje.sudoku.IterativeSolver;
+import com.powerje.sudoku.Puzzle;
+import com.powerje.sudoku.PuzzleFile;
+import com.powerje.sudoku.PuzzlePool;
+import com.powerje.sudoku.SolveBudget;
+import com.powerje.sudoku.SolverEngine;
+import com.powerje.sudoku.SudokuController;
+import com.powerje.sudoku.SudokuModel;
+
+/**
+ * Benchmarks of the hot paths: solving with each engine, legal-move
+ * checks, generation, and parsing boards from text and packed form.
+ * Solving, checking and parsing run over each PuzzleSet.  Each benchmark
+ * prints throughput, average time and bytes allocated per operation.
+ *
+ * Usage: Benchmarks [-w warmups] [-i iterations] [-t millis] [regex]
+ *
+ * Only benchmarks whose name contains a match of regex are run.  Console
+ * output of the code under test is dropped while benchmarks run so it does
+ * not count.  Build the
+ * game and these sources onto one class path and run this class; nothing
+ * else is needed.
+ */
+public final class Benchmarks {
+	/** Untimed iterations per benchmark by default. */
+	private static final int DEFAULT_WARMUPS = 3;
+
+	/** Timed iterations per benchmark by default. */
+	private static final int DEFAULT_ITERATIONS = 5;
+
+	/** Length of an iteration by default, in milliseconds. */
+	private static final long DEFAULT_MILLIS = 500;
+
+	/** Lines in the file the PuzzleFile benchmark reads. */
+	private static final int FILE_LINES = 10000;
+
+	/** Time given to each difficulty-targeted generation. */
+	private static final long GENERATE_MILLIS = 50;
+
+	/** Names of the benchmarks, in run order. */
+	private final List<String> names = new ArrayList<String>();
+
+	/** Benchmarks by position in names. */
+	private final List<Harness.Operation> operations =
+			new ArrayList<Harness.Operation>();
+
+	/** Files to delete once done. */
+	private final List<File> scratch = new ArrayList<File>();
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args see the class comment.
+	 * @throws Exception if a benchmark fails.
+	 */
+	public static void main(String[] args) throws Exception {
+		int warmups = DEFAULT_WARMUPS;
+		int iterations = DEFAULT_ITERATIONS;
+		long millis = DEFAULT_MILLIS;
+		Pattern filter = Pattern.compile("");
+		for (int i = 0; i < args.length; i++) {
+			if ("-w".equals(args[i])) {
+				warmups = Integer.parseInt(args[++i]);
+			} else if ("-i".equals(args[i])) {
+				iterations = Integer.parseInt(args[++i]);
+			} else if ("-t".equals(args[i])) {
+				millis = Long.parseLong(args[++i]);
+			} else {
+				filter = Pattern.compile(args[i]);
+			}
+		}
+
+		Benchmarks b = new Benchmarks();
+		try {
+			b.define();
+			b.run(new Harness(warmups, iterations, millis), filter);
+		} finally {
+			b.cleanUp();
+		}
+	}
+
+	/**
+	 * Adds a benchmark.
+	 *
+	 * @param name name of the benchmark.
+	 * @param op the operation.
+	 */
+	private void add(String name, Harness.Operation op) {
+		names.add(name);
+		operations.add(op);
+	}
+
+	/**
+	 * Defines every benchmark.
+	 *
+	 * @throws IOException if the scratch file cannot be written.
+	 */
+	private void define() throws IOException {
+		for (PuzzleSet set : PuzzleSet.values()) {
+			String suffix = "." + set.name().toLowerCase();
+			for (SolverEngine engine : SolverEngine.values()) {
+				add("solve.model." + engine.name().toLowerCase() + suffix,
+						modelSolve(engine, set.boards()));
+			}
+			add("solve.iterative" + suffix, iterativeSolve(set.cells()));
+			add("legal.bitboard" + suffix, legal(set.cells()));
+			add("parse.fromString" + suffix, fromString(set.boards()));
+			add("parse.unpack" + suffix, unpack(set.boards()));
+		}
+		add("parse.puzzleFile", puzzleFile());
+		add("parse.controller", controller());
+		add("generate.model", modelGenerate());
+		add("generate.clues26", generateClues(26));
+		for (Difficulty d : Difficulty.values()) {
+			add("generate." + d.name().toLowerCase(), generateDifficulty(d));
+		}
+	}
+
+	/**
+	 * Runs the benchmarks whose name matches filter, printing a line each
+	 * to the console.
+	 *
+	 * @param harness harness to run them in.
+	 * @param filter pattern the names are searched for.
+	 * @throws Exception if a benchmark fails.
+	 */
+	private void run(Harness harness, Pattern filter) throws Exception {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// dropped
+			}
+		}));
+		try {
+			report(harness, filter, out);
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * Runs the benchmarks whose name matches filter.
+	 *
+	 * @param harness harness to run them in.
+	 * @param filter pattern the names are searched for.
+	 * @param out stream the results are printed to.
+	 * @throws Exception if a benchmark fails.
+	 */
+	private void report(Harness harness, Pattern filter, PrintStream out)
+			throws Exception {
+		out.println(String.format("%-40s %14s %12s %12s %10s",
+				"Benchmark", "ops/s", "error", "us/op", "B/op"));
+		for (int i = 0; i < names.size(); i++) {
+			String name = names.get(i);
+			if (!filter.matcher(name).find()) {
+				continue;
+			}
+			Harness.Result r = harness.measure(name, operations.get(i));
+			out.println(String.format("%-40s %14.1f %12.1f %12.3f %10.1f",
+					name, r.getThroughput(), r.getThroughputError(),
+					r.getAverageNanos() / 1000, r.getBytesPerOp()));
+		}
+	}
+
+	/**
+	 * Deletes the scratch files.
+	 */
+	private void cleanUp() {
+		for (File f : scratch) {
+			f.delete();
+		}
+	}
+
+	/**
+	 * Solves through SudokuModel, as the game does.
+	 *
+	 * @param engine engine the model uses.
+	 * @param boards puzzles to cycle through.
+	 * @return the operation.
+	 */
+	private static Harness.Operation modelSolve(SolverEngine engine,
+			final Board[] boards) {
+		final SudokuModel model = new SudokuModel();
+		model.setEngine(engine);
+		return new Harness.Operation() {
+			public long run(int i) {
+				model.setBoard(boards[i % boards.length]);
+				Board solved = model.solveBoard();
+				return solved == null ? 0 : solved.get(0);
+			}
+		};
+	}
+
+	/**
+	 * Solves with a reused IterativeSolver, the allocation-free path.
+	 *
+	 * @param puzzles puzzles to cycle through.
+	 * @return the operation.
+	 */
+	private static Harness.Operation iterativeSolve(final int[][] puzzles) {
+		final IterativeSolver solver = new IterativeSolver();
+		final int[] cells = new int[BitBoard.CELLS];
+		return new Harness.Operation() {
+			public long run(int i) {
+				int[] p = puzzles[i % puzzles.length];
+				System.arraycopy(p, 0, cells, 0, cells.length);
+				return solver.solve(cells) ? cells[0] : 0;
+			}
+		};
+	}
+
+	/**
+	 * Loads a puzzle into masks and checks every symbol on every square,
+	 * one operation per puzzle.
+	 *
+	 * @param puzzles puzzles to cycle through.
+	 * @return the operation.
+	 */
+	private static Harness.Operation legal(final int[][] puzzles) {
+		final BitBoard masks = new BitBoard();
+		return new Harness.Operation() {
+			public long run(int i) {
+				int[] p = puzzles[i % puzzles.length];
+				masks.clear();
+				for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+					if (p[cell] != 0) {
+						masks.place(cell, p[cell]);
+					}
+				}
+				long count = 0;
+				for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+					for (int val = 1; val <= BitBoard.SIZE; val++) {
+						if (masks.legal(cell, val)) {
+							++count;
+						}
+					}
+				}
+				return count;
+			}
+		};
+	}
+
+	/**
+	 * Parses the comma form of Board.toString(), the form the game keeps
+	 * boards in.
+	 *
+	 * @param boards puzzles to cycle through.
+	 * @return the operation.
+	 */
+	private static Harness.Operation fromString(Board[] boards) {
+		final String[] text = new String[boards.length];
+		for (int i = 0; i < boards.length; i++) {
+			text[i] = boards[i].toString();
+		}
+		return new Harness.Operation() {
+			public long run(int i) {
+				return Board.fromString(text[i % text.length]).get(0);
+			}
+		};
+	}
+
+	/**
+	 * Unpacks boards from Board.pack() form, as archives store them.
+	 *
+	 * @param boards puzzles to cycle through.
+	 * @return the operation.
+	 */
+	private static Harness.Operation unpack(Board[] boards) {
+		final byte[] packed = new byte[boards.length * Board.PACKED_BYTES];
+		for (int i = 0; i < boards.length; i++) {
+			boards[i].pack(packed, i * Board.PACKED_BYTES);
+		}
+		final int n = boards.length;
+		return new Harness.Operation() {
+			public long run(int i) {
+				return Board.unpack(packed, (i % n) * Board.PACKED_BYTES)
+						.get(0);
+			}
+		};
+	}
+
+	/**
+	 * Reads puzzles from a text file, one operation per line, starting
+	 * over at the end of the file.
+	 *
+	 * @return the operation.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private Harness.Operation puzzleFile() throws IOException {
+		File f = File.createTempFile("sudoku-bench", ".txt");
+		scratch.add(f);
+		Writer out = new FileWriter(f);
+		try {
+			PuzzleSet[] sets = PuzzleSet.values();
+			for (int i = 0; i < FILE_LINES; i++) {
+				PuzzleSet set = sets[i % sets.length];
+				out.write(set.digits(i / sets.length % set.size()));
+				out.write('\n');
+			}
+		} finally {
+			out.close();
+		}
+
+		final PuzzleFile file = new PuzzleFile(f);
+		final byte[] packed = new byte[Board.PACKED_BYTES];
+		return new Harness.Operation() {
+			private PuzzleFile.Range range = file.all();
+
+			public long run(int i) throws IOException {
+				if (!range.next(packed, 0)) {
+					range = file.all();
+					range.next(packed, 0);
+				}
+				return packed[0];
+			}
+		};
+	}
+
+	/**
+	 * Starts a game from a ready puzzle, as from the pool.
+	 *
+	 * @return the operation.
+	 */
+	private static Harness.Operation controller() {
+		Generator generator = new Generator(new Random(0));
+		final Puzzle[] puzzles = new Puzzle[PuzzleSet.EASY.size()];
+		for (int i = 0; i < puzzles.length; i++) {
+			Board p = generator.generate(PuzzlePool.DEFAULT_CLUES);
+			puzzles[i] = new Puzzle(p, generator.getSolution(),
+					Puzzle.UNRATED);
+		}
+		return new Harness.Operation() {
+			public long run(int i) {
+				SudokuController c =
+						new SudokuController(puzzles[i % puzzles.length]);
+				return c.getTable()[0][0];
+			}
+		};
+	}
+
+	/**
+	 * Generates through SudokuModel, as the game does without a pool.
+	 *
+	 * @return the operation.
+	 */
+	private static Harness.Operation modelGenerate() {
+		final SudokuModel model = new SudokuModel();
+		return new Harness.Operation() {
+			public long run(int i) {
+				return model.generateBoard().clueCount();
+			}
+		};
+	}
+
+	/**
+	 * Generates to a clue count.
+	 *
+	 * @param clues clues to aim for.
+	 * @return the operation.
+	 */
+	private static Harness.Operation generateClues(final int clues) {
+		final Generator generator = new Generator(new Random(0));
+		return new Harness.Operation() {
+			public long run(int i) {
+				return generator.generate(clues).clueCount();
+			}
+		};
+	}
+
+	/**
+	 * Generates to a difficulty within GENERATE_MILLIS.
+	 *
+	 * @param target difficulty wanted.
+	 * @return the operation.
+	 */
+	private static Harness.Operation generateDifficulty(
+			final Difficulty target) {
+		final Generator generator = new Generator(new Random(0));
+		final SolveBudget budget = SolveBudget.ofTime(GENERATE_MILLIS,
+				TimeUnit.MILLISECONDS);
+		return new Harness.Operation() {
+			public long run(int i) {
+				return generator.generate(target, budget).getRating();
+			}
+		};
+	}
+}
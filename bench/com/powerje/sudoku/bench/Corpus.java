@@ -0,0 +1,254 @@
+package com.powerje.sudoku.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.powerje.sudoku.BitBoard;
+import com.powerje.sudoku.Board;
+import com.powerje.sudoku.Difficulty;
+
+/**
+ * Reference puzzles with their expected outcome, read from a text file
+ * such as bench/corpus.txt.  Each line that is not blank or a # comment
+ * holds a category, a name, the puzzle as 81 digits, and the expected
+ * outcome: the solution as 81 digits, "none" or "many".  An optional fifth
+ * field names the Difficulty the Grader must give the puzzle.
+ */
+public final class Corpus {
+	/** Expected outcome meaning the puzzle has no solution. */
+	public static final String NONE = "none";
+
+	/** Expected outcome meaning the puzzle has several solutions. */
+	public static final String MANY = "many";
+
+	/**
+	 * One reference puzzle.
+	 */
+	public static final class Entry {
+		/** Category, e.g. seventeen or unsolvable. */
+		private final String category;
+
+		/** Name, unique within the corpus. */
+		private final String name;
+
+		/** The puzzle. */
+		private final Board puzzle;
+
+		/** The only solution, or null. */
+		private final Board solution;
+
+		/** true iff the puzzle has several solutions. */
+		private final boolean multiple;
+
+		/** Expected grade, or null if not checked. */
+		private final Difficulty difficulty;
+
+		/**
+		 * Constructor for Entry.
+		 *
+		 * @param category category of the puzzle.
+		 * @param name name of the puzzle.
+		 * @param puzzle the puzzle.
+		 * @param solution the only solution, or null.
+		 * @param multiple true iff the puzzle has several solutions.
+		 * @param difficulty expected grade, or null if not checked.
+		 */
+		Entry(String category, String name, Board puzzle, Board solution,
+				boolean multiple, Difficulty difficulty) {
+			this.category = category;
+			this.name = name;
+			this.puzzle = puzzle;
+			this.solution = solution;
+			this.multiple = multiple;
+			this.difficulty = difficulty;
+		}
+
+		/**
+		 * @return category of the puzzle.
+		 */
+		public String getCategory() {
+			return category;
+		}
+
+		/**
+		 * @return name of the puzzle.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the puzzle.
+		 */
+		public Board getPuzzle() {
+			return puzzle;
+		}
+
+		/**
+		 * @return the only solution, or null if there is none or several.
+		 */
+		public Board getSolution() {
+			return solution;
+		}
+
+		/**
+		 * @return true iff the puzzle has several solutions.
+		 */
+		public boolean isMultiple() {
+			return multiple;
+		}
+
+		/**
+		 * @return the Difficulty the Grader must give, or null if the
+		 * grade is not checked.
+		 */
+		public Difficulty getDifficulty() {
+			return difficulty;
+		}
+
+		/**
+		 * @return true iff the puzzle has at least one solution.
+		 */
+		public boolean isSolvable() {
+			return solution != null || multiple;
+		}
+
+		/**
+		 * Checks a solver's answer against the expected outcome.
+		 *
+		 * @param answer solved board, or null if the solver found none.
+		 * @return true iff answer is right: the only solution, any valid
+		 * completion when there are several, null when there is none.
+		 */
+		public boolean accepts(Board answer) {
+			if (answer == null) {
+				return !isSolvable();
+			}
+			if (solution != null) {
+				return solution.equals(answer);
+			}
+			return multiple && completes(puzzle, answer);
+		}
+	}
+
+	/** The entries, in file order. */
+	private final List<Entry> entries;
+
+	/**
+	 * Constructor for Corpus.
+	 *
+	 * @param entries the entries.
+	 */
+	private Corpus(List<Entry> entries) {
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Reads a corpus file.
+	 *
+	 * @param f the file.
+	 * @return the corpus.
+	 * @throws IOException if the file cannot be read or a line is bad.
+	 */
+	public static Corpus load(File f) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(f), "US-ASCII"));
+		try {
+			String line;
+			int number = 0;
+			while ((line = in.readLine()) != null) {
+				++number;
+				line = line.trim();
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if (fields.length != 4 && fields.length != 5) {
+					throw new IOException(f + ":" + number
+							+ ": expected 4 or 5 fields");
+				}
+				Board puzzle = parse(fields[2], f, number);
+				Board solution = null;
+				boolean multiple = false;
+				if (MANY.equals(fields[3])) {
+					multiple = true;
+				} else if (!NONE.equals(fields[3])) {
+					solution = parse(fields[3], f, number);
+				}
+				Difficulty difficulty = null;
+				if (fields.length == 5) {
+					try {
+						difficulty = Difficulty.valueOf(
+								fields[4].toUpperCase());
+					} catch (IllegalArgumentException e) {
+						throw new IOException(f + ":" + number
+								+ ": bad difficulty " + fields[4]);
+					}
+				}
+				entries.add(new Entry(fields[0], fields[1], puzzle, solution,
+						multiple, difficulty));
+			}
+		} finally {
+			in.close();
+		}
+		return new Corpus(entries);
+	}
+
+	/**
+	 * @return the entries, in file order.
+	 */
+	public List<Entry> entries() {
+		return entries;
+	}
+
+	/**
+	 * @param digits one digit per square.
+	 * @param f file being read, for the message.
+	 * @param number line being read, for the message.
+	 * @return the board.
+	 * @throws IOException if digits is not a board.
+	 */
+	private static Board parse(String digits, File f, int number)
+			throws IOException {
+		if (digits.length() != BitBoard.CELLS) {
+			throw new IOException(f + ":" + number + ": expected "
+					+ BitBoard.CELLS + " digits");
+		}
+		int[] cells = new int[BitBoard.CELLS];
+		for (int i = 0; i < cells.length; i++) {
+			char c = digits.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new IOException(f + ":" + number + ": bad digit " + c);
+			}
+			cells[i] = c - '0';
+		}
+		return Board.of(cells);
+	}
+
+	/**
+	 * @param puzzle the puzzle.
+	 * @param answer a board.
+	 * @return true iff answer is full, keeps every clue of puzzle and has
+	 * no symbol twice in a row, column or box.
+	 */
+	static boolean completes(Board puzzle, Board answer) {
+		BitBoard masks = new BitBoard();
+		for (int cell = 0; cell < BitBoard.CELLS; cell++) {
+			int val = answer.get(cell);
+			int clue = puzzle.get(cell);
+			if (val == 0 || (clue != 0 && clue != val)
+					|| !masks.legal(cell, val)) {
+				return false;
+			}
+			masks.place(cell, val);
+		}
+		return true;
+	}
+}
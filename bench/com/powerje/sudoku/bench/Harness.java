@@ -0,0 +1,237 @@
+package com.powerje.sudoku.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an operation in timed iterations on the calling thread, after a
+ * number of untimed warm-up iterations, and reports throughput, average
+ * time and bytes allocated per operation.  Each iteration calls the
+ * operation until its time is up, checking the clock after every call, so
+ * operations should take well over the cost of System.nanoTime().
+ *
+ * Allocation is read from the HotSpot per-thread allocation counter and is
+ * reported as -1 where the JVM does not have one.
+ */
+public final class Harness {
+	/**
+	 * One benchmarked operation.
+	 */
+	public interface Operation {
+		/**
+		 * Does the work once.
+		 *
+		 * @param i number of the call, for cycling through inputs.
+		 * @return any value derived from the result, so the work cannot
+		 * be optimized away.
+		 * @throws Exception if the work fails.
+		 */
+		long run(int i) throws Exception;
+	}
+
+	/**
+	 * Measurements of one operation.
+	 */
+	public static final class Result {
+		/** Name of the benchmark. */
+		private final String name;
+
+		/** Operations per second of each timed iteration. */
+		private final double[] rates;
+
+		/** Operations over all timed iterations. */
+		private final long ops;
+
+		/** Time of all timed iterations, in nanoseconds. */
+		private final long nanos;
+
+		/** Bytes allocated over all timed iterations, -1 if unknown. */
+		private final long bytes;
+
+		/**
+		 * Constructor for Result.
+		 *
+		 * @param name name of the benchmark.
+		 * @param rates operations per second of each timed iteration.
+		 * @param ops operations over all timed iterations.
+		 * @param nanos time of all timed iterations.
+		 * @param bytes bytes allocated, -1 if unknown.
+		 */
+		Result(String name, double[] rates, long ops, long nanos, long bytes) {
+			this.name = name;
+			this.rates = rates;
+			this.ops = ops;
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return name of the benchmark.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return mean operations per second over the timed iterations.
+		 */
+		public double getThroughput() {
+			double sum = 0;
+			for (double r : rates) {
+				sum += r;
+			}
+			return sum / rates.length;
+		}
+
+		/**
+		 * @return standard deviation of operations per second between
+		 * iterations, 0 with a single iteration.
+		 */
+		public double getThroughputError() {
+			if (rates.length < 2) {
+				return 0;
+			}
+			double mean = getThroughput();
+			double sum = 0;
+			for (double r : rates) {
+				sum += (r - mean) * (r - mean);
+			}
+			return Math.sqrt(sum / (rates.length - 1));
+		}
+
+		/**
+		 * @return average time per operation, in nanoseconds.
+		 */
+		public double getAverageNanos() {
+			return (double) nanos / ops;
+		}
+
+		/**
+		 * @return bytes allocated per operation, -1 if unknown.
+		 */
+		public double getBytesPerOp() {
+			return bytes < 0 ? -1 : (double) bytes / ops;
+		}
+
+		/**
+		 * @return operations over all timed iterations.
+		 */
+		public long getOps() {
+			return ops;
+		}
+	}
+
+	/** Source of per-thread allocation counts, or null. */
+	private static final com.sun.management.ThreadMXBean ALLOCATION =
+			allocationBean();
+
+	/** Untimed iterations before measuring. */
+	private final int warmups;
+
+	/** Timed iterations. */
+	private final int iterations;
+
+	/** Length of each iteration, in nanoseconds. */
+	private final long iterationNanos;
+
+	/** Results of the operations, kept where the JIT cannot drop them. */
+	private volatile long sink;
+
+	/**
+	 * Constructor for Harness.
+	 *
+	 * @param warmups untimed iterations before measuring.
+	 * @param iterations timed iterations, at least 1.
+	 * @param iterationMillis length of each iteration, in milliseconds.
+	 */
+	public Harness(int warmups, int iterations, long iterationMillis) {
+		if (warmups < 0 || iterations < 1 || iterationMillis < 1) {
+			throw new IllegalArgumentException("bad harness settings");
+		}
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationNanos = TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+	}
+
+	/**
+	 * Warms up and measures an operation.
+	 *
+	 * @param name name of the benchmark.
+	 * @param op the operation.
+	 * @return the measurements.
+	 * @throws Exception if the operation fails.
+	 */
+	public Result measure(String name, Operation op) throws Exception {
+		int[] next = new int[1];
+		for (int w = 0; w < warmups; w++) {
+			iteration(op, next);
+		}
+
+		double[] rates = new double[iterations];
+		long allocated = allocatedBytes();
+		long ops = 0;
+		long nanos = 0;
+		for (int it = 0; it < iterations; it++) {
+			long start = System.nanoTime();
+			long n = iteration(op, next);
+			long elapsed = System.nanoTime() - start;
+			rates[it] = n * 1e9 / elapsed;
+			ops += n;
+			nanos += elapsed;
+		}
+		long bytes = allocated < 0 ? -1 : allocatedBytes() - allocated;
+		return new Result(name, rates, ops, nanos, bytes);
+	}
+
+	/**
+	 * Calls op until one iteration's time is up.
+	 *
+	 * @param op the operation.
+	 * @param next holds the number of the next call.
+	 * @return number of calls made.
+	 * @throws Exception if the operation fails.
+	 */
+	private long iteration(Operation op, int[] next) throws Exception {
+		long deadline = System.nanoTime() + iterationNanos;
+		long acc = 0;
+		long n = 0;
+		int i = next[0];
+		do {
+			acc += op.run(i++);
+			++n;
+		} while (System.nanoTime() < deadline);
+		next[0] = i;
+		sink += acc;
+		return n;
+	}
+
+	/**
+	 * @return bytes allocated so far by the calling thread, -1 if unknown.
+	 */
+	private static long allocatedBytes() {
+		if (ALLOCATION == null) {
+			return -1;
+		}
+		return ALLOCATION.getThreadAllocatedBytes(
+				Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return the HotSpot thread bean with allocation counting on, or null
+	 * if this JVM does not support it.
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean hotspot =
+				(com.sun.management.ThreadMXBean) bean;
+		if (!hotspot.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		hotspot.setThreadAllocatedMemoryEnabled(true);
+		return hotspot;
+	}
+}
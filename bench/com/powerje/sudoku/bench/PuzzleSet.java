@@ -0,0 +1,105 @@
+package com.powerje.sudoku.bench;
+
+import com.powerje.sudoku.Board;
+
+/**
+ * Fixed puzzles the benchmarks run over, one row-major string of digits
+ * per puzzle, 0 for an empty square.
+ */
+public enum PuzzleSet {
+	/** Solved by singles alone. */
+	EASY(new String[] {
+			"003020600900305001001806400008102900700000008006708200002609500800203009005010300",
+			"200080300060070084030500209000105408000000000402706000301007040720040060004010003",
+			"000000907000420180000705026100904000050000040000507009920108000034059000507000000",
+			"030050040008010500460000012070502080000603000040109030250000098001020600080060020",
+			"020810740700003100090002805009040087400208003160030200302700060005600008076051090" }),
+
+	/** Published "hardest" puzzles, beyond every technique of the Grader. */
+	HARD(new String[] {
+			"100007090030020008009600500005300900010080002600004000300000010040000007007000300",
+			"800000000003600000070090200050007000000045700000100030001000068008500010090000400",
+			"000000012000000003002300400001800005060070800000009000008500000900040500470006000",
+			"000000039000001005003050800008090006070002000100400000009080050020000600400700000" }),
+
+	/** Minimal puzzles with 17 clues, the fewest a unique puzzle can have. */
+	SEVENTEEN(new String[] {
+			"000000010400000000020000000000050407008000300001090000300400200050100000000806000",
+			"000000010400000000020000000000050604008000300001090000300400200050100000000807000",
+			"000000012000035000000600070700000300000400800100000000000120000080000040050000600",
+			"000000012003600000000007000410020000000500300700000600280000040000300500000000000",
+			"000000012008030000000000040120500000000004700060000000507000300000620000000100000",
+			"400000805030000000000700000020000060000080400000010000000603070500200000104000000" }),
+
+	/**
+	 * HARD and SEVENTEEN puzzles with one wrong clue added.  No two clues
+	 * clash, so only search proves there is no solution.
+	 */
+	UNSOLVABLE(new String[] {
+			"100007090030020008009600500005300900010080002600004000300000010040000007007000309",
+			"800000000003650000070090200050007000000045700000100030001000068008500010090000400",
+			"000000012000000003002300400001800005060070800000009000008500000906040500470006000",
+			"000000039000001005003050800008090006070002000100400000009080050020000600400700900",
+			"400000805030000000600700000020000060000080400000010000000603070500200000104000000" });
+
+	/** The puzzles, as strings of digits. */
+	private final String[] puzzles;
+
+	/**
+	 * Constructor for PuzzleSet.
+	 *
+	 * @param puzzles the puzzles, as strings of digits.
+	 */
+	PuzzleSet(String[] puzzles) {
+		this.puzzles = puzzles;
+	}
+
+	/**
+	 * @return number of puzzles.
+	 */
+	public int size() {
+		return puzzles.length;
+	}
+
+	/**
+	 * @param i number of the puzzle.
+	 * @return the puzzle as a string of digits.
+	 */
+	public String digits(int i) {
+		return puzzles[i];
+	}
+
+	/**
+	 * @return a fresh row-major copy of each puzzle.
+	 */
+	public int[][] cells() {
+		int[][] out = new int[puzzles.length][];
+		for (int i = 0; i < puzzles.length; i++) {
+			out[i] = parse(puzzles[i]);
+		}
+		return out;
+	}
+
+	/**
+	 * @return the puzzles as boards.
+	 */
+	public Board[] boards() {
+		Board[] out = new Board[puzzles.length];
+		for (int i = 0; i < puzzles.length; i++) {
+			out[i] = Board.of(parse(puzzles[i]));
+		}
+		return out;
+	}
+
+	/**
+	 * @param digits one digit per square.
+	 * @return row-major board.
+	 */
+	static int[] parse(String digits) {
+		int[] cells = new int[digits.length()];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = digits.charAt(i) - '0';
+		}
+		return cells;
+	}
+}
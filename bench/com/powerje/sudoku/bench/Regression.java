@@ -0,0 +1,426 @@
+package com.powerje.sudoku.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import com.powerje.sudoku.Board;
+import com.powerje.sudoku.Difficulty;
+import com.powerje.sudoku.Grader;
+import com.powerje.sudoku.SolverEngine;
+import com.powerje.sudoku.SudokuModel;
+
+/**
+ * Runs every SolverEngine through SudokuModel over a Corpus and fails if
+ * an engine gets a puzzle wrong or if the Grader gives a graded puzzle the
+ * wrong Difficulty.  Each puzzle is solved several times and counts with
+ * the median of its times, so a stray collection or compilation does not
+ * move the percentiles, and the whole run is done in several rounds of
+ * which the median is kept.
+ *
+ * Usage: Regression [-corpus file] [-baseline file] [-threshold fraction]
+ * [-w warmups] [-r repeats] [-n rounds] [-timing] [-record] [-strict]
+ *
+ * Times are printed but only fail the run with -timing.  Every engine's
+ * median and 99th percentile are then taken relative to those of the
+ * REFERENCE engine in the same run, and the run fails if one of these
+ * ratios has grown by more than the threshold, 30% by default, over the
+ * stored baseline.  Ratios carry over between machines far better than
+ * times do, but a loaded machine still moves them, so timing failures
+ * call for a rerun before a bisect.
+ *
+ * -record writes the ratios measured as the new baseline instead of
+ * comparing against it.  BACKTRACKING gives up after
+ * SudokuModel.MAX_ITERATIONS and then reports no solution; such give-ups
+ * are counted apart from wrong answers and only fail the run with
+ * -strict.  The exit status is 0 iff the run passes.
+ */
+public final class Regression {
+	/** Corpus read by default. */
+	private static final String DEFAULT_CORPUS = "bench/corpus.txt";
+
+	/** Baseline read or written by default. */
+	private static final String DEFAULT_BASELINE = "bench/baseline.properties";
+
+	/** Engine the other engines' times are taken relative to. */
+	private static final SolverEngine REFERENCE = SolverEngine.BACKTRACKING;
+
+	/** Growth allowed over the baseline by default, as a fraction. */
+	private static final double DEFAULT_THRESHOLD = 0.30;
+
+	/** Untimed passes over the corpus per engine by default. */
+	private static final int DEFAULT_WARMUPS = 20;
+
+	/** Timed solves of each puzzle per engine by default. */
+	private static final int DEFAULT_REPEATS = 15;
+
+	/** Rounds over every engine by default. */
+	private static final int DEFAULT_ROUNDS = 3;
+
+	/**
+	 * Times and mistakes of one engine over the corpus.
+	 */
+	private static final class Run {
+		/** The engine. */
+		final SolverEngine engine;
+
+		/** Puzzles answered right. */
+		int right;
+
+		/** Puzzles given up on by an engine with an iteration limit. */
+		int gaveUp;
+
+		/** Descriptions of the wrong answers. */
+		final List<String> wrong = new ArrayList<String>();
+
+		/** Median time of each puzzle, in nanoseconds, sorted once done. */
+		long[] samples;
+
+		/** Median solve time of each round, in nanoseconds. */
+		final List<Long> medians = new ArrayList<Long>();
+
+		/** 99th percentile solve time of each round, in nanoseconds. */
+		final List<Long> p99s = new ArrayList<Long>();
+
+		/**
+		 * Constructor for Run.
+		 *
+		 * @param engine the engine.
+		 */
+		Run(SolverEngine engine) {
+			this.engine = engine;
+		}
+
+		/**
+		 * Keeps the percentiles of the round just done.
+		 */
+		void endRound() {
+			Arrays.sort(samples);
+			medians.add(quantile(samples, 0.5));
+			p99s.add(quantile(samples, 0.99));
+		}
+
+		/**
+		 * @return median over the rounds of the median solve time.
+		 */
+		long median() {
+			return middle(medians);
+		}
+
+		/**
+		 * @return median over the rounds of the 99th percentile solve time.
+		 */
+		long p99() {
+			return middle(p99s);
+		}
+	}
+
+	/**
+	 * @param sorted values in increasing order.
+	 * @param q fraction of values at or below the result, 0 < q <= 1.
+	 * @return the q quantile of the values.
+	 */
+	private static long quantile(long[] sorted, double q) {
+		int i = (int) Math.ceil(q * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+	}
+
+	/**
+	 * @param values at least one value.
+	 * @return their median.
+	 */
+	private static long middle(List<Long> values) {
+		long[] sorted = new long[values.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = values.get(i);
+		}
+		Arrays.sort(sorted);
+		return quantile(sorted, 0.5);
+	}
+
+	/**
+	 * Runs the harness.
+	 *
+	 * @param args see the class comment.
+	 * @throws IOException if the corpus or baseline cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		File corpusFile = new File(DEFAULT_CORPUS);
+		File baselineFile = new File(DEFAULT_BASELINE);
+		double threshold = DEFAULT_THRESHOLD;
+		int warmups = DEFAULT_WARMUPS;
+		int repeats = DEFAULT_REPEATS;
+		int rounds = DEFAULT_ROUNDS;
+		boolean timing = false;
+		boolean record = false;
+		boolean strict = false;
+		for (int i = 0; i < args.length; i++) {
+			if ("-corpus".equals(args[i])) {
+				corpusFile = new File(args[++i]);
+			} else if ("-baseline".equals(args[i])) {
+				baselineFile = new File(args[++i]);
+			} else if ("-threshold".equals(args[i])) {
+				threshold = Double.parseDouble(args[++i]);
+			} else if ("-w".equals(args[i])) {
+				warmups = Integer.parseInt(args[++i]);
+			} else if ("-r".equals(args[i])) {
+				repeats = Integer.parseInt(args[++i]);
+			} else if ("-n".equals(args[i])) {
+				rounds = Integer.parseInt(args[++i]);
+			} else if ("-timing".equals(args[i])) {
+				timing = true;
+			} else if ("-record".equals(args[i])) {
+				record = true;
+			} else if ("-strict".equals(args[i])) {
+				strict = true;
+			} else {
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+
+		Corpus corpus = Corpus.load(corpusFile);
+		List<Run> runs = new ArrayList<Run>();
+		for (SolverEngine engine : SolverEngine.values()) {
+			runs.add(new Run(engine));
+		}
+		for (int round = 0; round < rounds; round++) {
+			for (Run run : runs) {
+				run(run, corpus, warmups, repeats);
+			}
+		}
+
+		Properties baseline = new Properties();
+		if (timing && !record) {
+			InputStream in = new FileInputStream(baselineFile);
+			try {
+				baseline.load(in);
+			} finally {
+				in.close();
+			}
+		}
+
+		boolean pass = report(runs, baseline, threshold, timing, strict);
+		pass &= checkGrades(corpus);
+		if (record) {
+			if (pass) {
+				writeBaseline(runs, baselineFile);
+				System.out.println("baseline written to " + baselineFile);
+			} else {
+				System.out.println("baseline not written, answers are wrong");
+			}
+		}
+		System.out.println(pass ? "PASS" : "FAIL");
+		System.exit(pass ? 0 : 1);
+	}
+
+	/**
+	 * Solves every puzzle of the corpus with one engine, one round.
+	 * Answers are checked in the first round only.
+	 *
+	 * @param run the engine's run so far.
+	 * @param corpus the puzzles.
+	 * @param warmups untimed passes over the corpus.
+	 * @param repeats timed solves of each puzzle, at least 1.
+	 */
+	private static void run(Run run, Corpus corpus, int warmups,
+			int repeats) {
+		SolverEngine engine = run.engine;
+		boolean check = run.medians.isEmpty();
+		SudokuModel model = new SudokuModel();
+		model.setEngine(engine);
+		List<Corpus.Entry> entries = corpus.entries();
+		for (int w = 0; w < warmups; w++) {
+			for (Corpus.Entry e : entries) {
+				model.setBoard(e.getPuzzle());
+				model.solveBoard();
+			}
+		}
+
+		run.samples = new long[entries.size()];
+		long[] times = new long[repeats];
+		int n = 0;
+		for (Corpus.Entry e : entries) {
+			Board answer = null;
+			for (int r = 0; r < repeats; r++) {
+				long start = System.nanoTime();
+				model.setBoard(e.getPuzzle());
+				answer = model.solveBoard();
+				times[r] = System.nanoTime() - start;
+			}
+			Arrays.sort(times);
+			run.samples[n++] = times[repeats / 2];
+			if (!check) {
+				continue;
+			} else if (e.accepts(answer)) {
+				++run.right;
+			} else if (answer == null
+					&& engine == SolverEngine.BACKTRACKING) {
+				++run.gaveUp;
+			} else {
+				run.wrong.add(e.getCategory() + "/" + e.getName() + ": "
+						+ (answer == null ? "no solution" : answer));
+			}
+		}
+		run.endRound();
+	}
+
+	/**
+	 * Prints a line per engine and every failure.
+	 *
+	 * @param runs the engines' runs.
+	 * @param baseline stored ratios, empty unless comparing times.
+	 * @param threshold growth allowed over the baseline, as a fraction.
+	 * @param timing true to fail on ratios grown beyond threshold.
+	 * @param strict true to fail on give-ups too.
+	 * @return true iff the run passes.
+	 */
+	private static boolean report(List<Run> runs, Properties baseline,
+			double threshold, boolean timing, boolean strict) {
+		boolean pass = true;
+		List<String> failures = new ArrayList<String>();
+		Run reference = find(runs, REFERENCE);
+		System.out.println(String.format(
+				"%-18s %6s %6s %7s %10s %10s %8s %8s %8s %8s", "Engine",
+				"right", "wrong", "gaveUp", "median us", "p99 us", "x median",
+				"x p99", "base med", "base p99"));
+		for (Run run : runs) {
+			String key = run.engine.name().toLowerCase();
+			double median = ratio(run.median(), reference.median());
+			double p99 = ratio(run.p99(), reference.p99());
+			double baseMedian = parse(baseline, key + ".median");
+			double baseP99 = parse(baseline, key + ".p99");
+			System.out.println(String.format(
+					"%-18s %6d %6d %7d %10.1f %10.1f %8.2f %8.2f %8s %8s",
+					key, run.right, run.wrong.size(), run.gaveUp,
+					run.median() / 1e3, run.p99() / 1e3, median, p99,
+					format(baseMedian), format(baseP99)));
+
+			for (String w : run.wrong) {
+				failures.add(key + " wrong on " + w);
+			}
+			if (strict && run.gaveUp > 0) {
+				failures.add(key + " gave up on " + run.gaveUp + " puzzles");
+			}
+			if (!timing || run == reference) {
+				continue;
+			}
+			if (baseMedian > 0 && median > baseMedian * (1 + threshold)) {
+				failures.add(key + " median regressed against "
+						+ reference.engine.name().toLowerCase());
+			}
+			if (baseP99 > 0 && p99 > baseP99 * (1 + threshold)) {
+				failures.add(key + " p99 regressed against "
+						+ reference.engine.name().toLowerCase());
+			}
+		}
+		for (String f : failures) {
+			System.out.println("FAIL " + f);
+			pass = false;
+		}
+		return pass;
+	}
+
+	/**
+	 * Grades every puzzle of the corpus that has an expected Difficulty,
+	 * printing each wrong grade.
+	 *
+	 * @param corpus the puzzles.
+	 * @return true iff every grade is right.
+	 */
+	private static boolean checkGrades(Corpus corpus) {
+		Grader grader = new Grader();
+		boolean pass = true;
+		for (Corpus.Entry e : corpus.entries()) {
+			Difficulty expected = e.getDifficulty();
+			if (expected == null) {
+				continue;
+			}
+			Difficulty d = grader.grade(e.getPuzzle());
+			if (d != expected) {
+				System.out.println("FAIL grader gave " + e.getCategory() + "/"
+						+ e.getName() + " " + d + ", expected " + expected);
+				pass = false;
+			}
+		}
+		return pass;
+	}
+
+	/**
+	 * @param runs the engines' runs.
+	 * @param engine an engine that has a run.
+	 * @return the engine's run.
+	 */
+	private static Run find(List<Run> runs, SolverEngine engine) {
+		for (Run run : runs) {
+			if (run.engine == engine) {
+				return run;
+			}
+		}
+		throw new IllegalArgumentException("no run of " + engine);
+	}
+
+	/**
+	 * @param nanos a time.
+	 * @param reference the reference engine's time.
+	 * @return nanos as a multiple of reference.
+	 */
+	private static double ratio(long nanos, long reference) {
+		return (double) nanos / Math.max(1, reference);
+	}
+
+	/**
+	 * @param baseline stored ratios.
+	 * @param key key of one ratio.
+	 * @return the ratio, -1 if not stored.
+	 */
+	private static double parse(Properties baseline, String key) {
+		String value = baseline.getProperty(key);
+		return value == null ? -1 : Double.parseDouble(value.trim());
+	}
+
+	/**
+	 * @param ratio a ratio, -1 if unknown.
+	 * @return the ratio to two places, or "-" if unknown.
+	 */
+	private static String format(double ratio) {
+		return ratio < 0 ? "-" : String.format("%.2f", ratio);
+	}
+
+	/**
+	 * Stores the median and p99 of every engine but the reference, as
+	 * ratios to those of the reference.
+	 *
+	 * @param runs the engines' runs.
+	 * @param f file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void writeBaseline(List<Run> runs, File f)
+			throws IOException {
+		Run reference = find(runs, REFERENCE);
+		PrintWriter out = new PrintWriter(f, "US-ASCII");
+		try {
+			out.println("# Solve times over bench/corpus.txt as multiples of "
+					+ reference.engine.name().toLowerCase() + "'s in the same"
+					+ " run, written by Regression -record.");
+			for (Run run : runs) {
+				if (run == reference) {
+					continue;
+				}
+				String key = run.engine.name().toLowerCase();
+				out.println(key + ".median=" + String.format(Locale.ROOT,
+						"%.3f", ratio(run.median(), reference.median())));
+				out.println(key + ".p99=" + String.format(Locale.ROOT,
+						"%.3f", ratio(run.p99(), reference.p99())));
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
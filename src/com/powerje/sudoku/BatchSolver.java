@@ -0,0 +1,352 @@
+package com.powerje.sudoku;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Solves streams of boards across a fixed pool of threads.  Boards are
+ * read from the input in chunks, each chunk is solved by one thread with
+ * that thread's own IterativeSolver, and boards are solved in place, so
+ * the per-board cost is the search itself.
+ *
+ * Results come back either in input order or, cheaper, through a Callback
+ * in whatever order the threads finish.  Call shutdown() when done with
+ * the solver.
+ *
+ * With lanes set, each thread first propagates singles over groups of that
+ * many boards at once with a LanePropagator, and only searches the boards
+ * propagation could not rule out.
+ */
+public final class BatchSolver {
+	/** Boards handed to a thread at a time by default. */
+	public static final int DEFAULT_CHUNK = 256;
+
+	/** Chunks queued per thread before reading more of the input. */
+	private static final int CHUNKS_IN_FLIGHT = 4;
+
+	/**
+	 * Receives results from solveAll in completion order.
+	 */
+	public interface Callback {
+		/**
+		 * Called from a pool thread once a board has been tried.
+		 *
+		 * @param index position of the board in the input.
+		 * @param cells the board, solved in place iff solved is true.
+		 * @param solved true iff the board was solved.
+		 */
+		void onResult(long index, int[] cells, boolean solved);
+	}
+
+	/** Threads the boards are solved on. */
+	private final ExecutorService executor;
+
+	/** Number of threads in executor. */
+	private final int threads;
+
+	/** Boards handed to a thread at a time. */
+	private final int chunkSize;
+
+	/** Boards propagated together, 0 to go straight to search. */
+	private final int lanes;
+
+	/** Solvers for the pool threads. */
+	private final Workspaces workspaces = Workspaces.shared();
+
+	/** One lane propagator per pool thread, when lanes is set. */
+	private final ThreadLocal<LanePropagator> laneWorkspaces =
+			new ThreadLocal<LanePropagator>() {
+				@Override
+				protected LanePropagator initialValue() {
+					return new LanePropagator(lanes);
+				}
+			};
+
+	/**
+	 * Constructor for BatchSolver with one thread per core.
+	 */
+	public BatchSolver() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK, 0);
+	}
+
+	/**
+	 * Constructor for BatchSolver that searches every board directly.
+	 *
+	 * @param threads number of threads to solve on.
+	 * @param chunkSize boards handed to a thread at a time.
+	 */
+	public BatchSolver(int threads, int chunkSize) {
+		this(threads, chunkSize, 0);
+	}
+
+	/**
+	 * Constructor for BatchSolver.
+	 *
+	 * @param threads number of threads to solve on.
+	 * @param chunkSize boards handed to a thread at a time.
+	 * @param lanes boards to propagate together before searching, 0 to
+	 * search every board directly.
+	 */
+	public BatchSolver(int threads, int chunkSize, int lanes) {
+		if (threads < 1 || chunkSize < 1 || lanes < 0) {
+			throw new IllegalArgumentException("threads and chunkSize must"
+					+ " be positive, lanes must not be negative");
+		}
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+		this.lanes = lanes;
+		this.executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "sudoku-batch");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Solves every board and returns the results in input order.
+	 *
+	 * @param boards row-major boards, 0 for empty squares; solvable boards
+	 * are solved in place.
+	 * @return for each board in order, the board itself if it was solved,
+	 * null if it was not.
+	 */
+	public List<int[]> solveAll(Iterable<int[]> boards) {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		run(boards, null, chunks);
+
+		List<int[]> results = new ArrayList<int[]>();
+		for (Chunk chunk : chunks) {
+			for (int i = 0; i < chunk.size; i++) {
+				results.add(chunk.solved[i] ? chunk.boards[i] : null);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Solves every board, reporting each one to callback as soon as it is
+	 * done.  Returns once every board has been reported.
+	 *
+	 * @param boards row-major boards, 0 for empty squares; solvable boards
+	 * are solved in place.
+	 * @param callback receives the results, from several threads at once.
+	 */
+	public void solveAll(Iterable<int[]> boards, Callback callback) {
+		run(boards, callback, null);
+	}
+
+	/**
+	 * Stops the pool threads once queued work is done.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Feeds the input to the pool a chunk at a time.
+	 *
+	 * @param boards boards to solve.
+	 * @param callback receives each result, or null.
+	 * @param keep receives every chunk when not null.
+	 */
+	private void run(Iterable<int[]> boards, Callback callback,
+			List<Chunk> keep) {
+		Semaphore inFlight = new Semaphore(threads * CHUNKS_IN_FLIGHT);
+		List<Future<?>> pending = new ArrayList<Future<?>>();
+		Iterator<int[]> it = boards.iterator();
+		long index = 0;
+
+		try {
+			while (it.hasNext()) {
+				Chunk chunk = new Chunk(index, chunkSize, callback);
+				while (chunk.size < chunkSize && it.hasNext()) {
+					chunk.boards[chunk.size++] = it.next();
+				}
+				index += chunk.size;
+				if (keep != null) {
+					keep.add(chunk);
+				}
+
+				inFlight.acquire();
+				pending.add(executor.submit(new ChunkTask(chunk, inFlight)));
+				if (keep == null) {
+					// nothing else holds on to finished chunks
+					pending = dropFinished(pending);
+				}
+			}
+			for (Future<?> f : pending) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Solving failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Forgets the chunks that are done, surfacing any failure.
+	 *
+	 * @param pending submitted chunks.
+	 * @return the chunks of pending that are still running.
+	 * @throws InterruptedException if interrupted.
+	 * @throws ExecutionException if a finished chunk failed.
+	 */
+	private static List<Future<?>> dropFinished(List<Future<?>> pending)
+			throws InterruptedException, ExecutionException {
+		List<Future<?>> running = new ArrayList<Future<?>>(pending.size());
+		for (Future<?> f : pending) {
+			if (f.isDone()) {
+				f.get();
+			} else {
+				running.add(f);
+			}
+		}
+		return running;
+	}
+
+	/**
+	 * A run of consecutive boards from the input.
+	 */
+	private static final class Chunk {
+		/** Position of the first board in the input. */
+		private final long first;
+
+		/** The boards. */
+		private final int[][] boards;
+
+		/** [i] is true iff boards[i] was solved. */
+		private final boolean[] solved;
+
+		/** Number of boards in use. */
+		private int size;
+
+		/** Receives each result, or null. */
+		private final Callback callback;
+
+		/**
+		 * Constructor for Chunk.
+		 *
+		 * @param first position of the first board in the input.
+		 * @param capacity most boards the chunk can hold.
+		 * @param callback receives each result, or null.
+		 */
+		Chunk(long first, int capacity, Callback callback) {
+			this.first = first;
+			this.boards = new int[capacity][];
+			this.solved = new boolean[capacity];
+			this.callback = callback;
+		}
+	}
+
+	/**
+	 * Solves one chunk on a pool thread.
+	 */
+	private final class ChunkTask implements Runnable {
+		/** Chunk to solve. */
+		private final Chunk chunk;
+
+		/** Released when the chunk is done. */
+		private final Semaphore inFlight;
+
+		/**
+		 * Constructor for ChunkTask.
+		 *
+		 * @param chunk chunk to solve.
+		 * @param inFlight released when the chunk is done.
+		 */
+		ChunkTask(Chunk chunk, Semaphore inFlight) {
+			this.chunk = chunk;
+			this.inFlight = inFlight;
+		}
+
+		public void run() {
+			try {
+				if (lanes == 0) {
+					solveDirectly();
+				} else {
+					solveInLanes();
+				}
+			} finally {
+				inFlight.release();
+			}
+		}
+
+		/**
+		 * Searches every board of the chunk.
+		 */
+		private void solveDirectly() {
+			Workspace w = workspaces.acquire();
+			try {
+				IterativeSolver solver = w.solver();
+				for (int i = 0; i < chunk.size; i++) {
+					chunk.solved[i] = solver.solve(chunk.boards[i]);
+					report(i);
+				}
+			} finally {
+				workspaces.release(w);
+			}
+		}
+
+		/**
+		 * Propagates the chunk a group of lanes at a time and searches
+		 * only the boards that survive.
+		 */
+		private void solveInLanes() {
+			Workspace w = workspaces.acquire();
+			try {
+				IterativeSolver solver = w.solver();
+				LanePropagator group = laneWorkspaces.get();
+				int[] scratch = w.cells();
+				for (int start = 0; start < chunk.size; start += lanes) {
+					int n = Math.min(lanes, chunk.size - start);
+					for (int lane = 0; lane < lanes; lane++) {
+						if (lane < n) {
+							group.load(lane, chunk.boards[start + lane]);
+						} else {
+							group.clear(lane);
+						}
+					}
+					group.propagate();
+					for (int lane = 0; lane < n; lane++) {
+						int i = start + lane;
+						if (!group.failed(lane)) {
+							group.store(lane, scratch);
+							if (solver.solve(scratch)) {
+								System.arraycopy(scratch, 0, chunk.boards[i], 0,
+										scratch.length);
+								chunk.solved[i] = true;
+							}
+						}
+						report(i);
+					}
+				}
+			} finally {
+				workspaces.release(w);
+			}
+		}
+
+		/**
+		 * Hands one result to the callback, if there is one.
+		 *
+		 * @param i position of the board in the chunk.
+		 */
+		private void report(int i) {
+			if (chunk.callback != null) {
+				chunk.callback.onResult(chunk.first + i, chunk.boards[i],
+						chunk.solved[i]);
+			}
+		}
+	}
+}
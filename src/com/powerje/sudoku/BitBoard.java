@@ -0,0 +1,217 @@
+package com.powerje.sudoku;
+
+/**
+ * Bitmask engine for a Sudoku board.  Keeps one candidate mask per row,
+ * column and 3x3 box, updated on every place/remove, so checking whether
+ * a value is legal in a square is a single AND of three ints rather than
+ * a scan of the board.
+ *
+ * Squares are addressed either by (x, y) or by their cell index
+ * x * SIZE + y.  Bit (val - 1) of a mask is set iff val is still free
+ * in that row, column or box.
+ */
+public final class BitBoard {
+	/** Large grid size. */
+	public static final int SIZE = 9;
+
+	/** Small grid size. */
+	public static final int SMALL_GRID = 3;
+
+	/** Number of squares on the board. */
+	public static final int CELLS = SIZE * SIZE;
+
+	/** Mask with every symbol free. */
+	public static final int ALL = (1 << SIZE) - 1;
+
+	/** Row of each cell index. */
+	static final int[] ROW_OF = new int[CELLS];
+
+	/** Column of each cell index. */
+	static final int[] COL_OF = new int[CELLS];
+
+	/** Box of each cell index. */
+	static final int[] BOX_OF = new int[CELLS];
+
+	/** Number of other squares sharing a row, column or box with a square. */
+	public static final int PEERS = 2 * (SIZE - 1)
+			+ (SMALL_GRID - 1) * (SMALL_GRID - 1);
+
+	/** Cell indexes of the peers of each cell index. */
+	static final int[][] PEERS_OF = new int[CELLS][PEERS];
+
+	/** Number of rows, columns and boxes. */
+	public static final int UNITS = 3 * SIZE;
+
+	/** Cell indexes of each row, then each column, then each box. */
+	static final int[][] UNIT_CELLS = new int[UNITS][SIZE];
+
+	static {
+		for (int cell = 0; cell < CELLS; cell++) {
+			ROW_OF[cell] = cell / SIZE;
+			COL_OF[cell] = cell % SIZE;
+			BOX_OF[cell] = (ROW_OF[cell] / SMALL_GRID) * SMALL_GRID
+					+ COL_OF[cell] / SMALL_GRID;
+		}
+		int[] filled = new int[UNITS];
+		for (int cell = 0; cell < CELLS; cell++) {
+			int r = ROW_OF[cell];
+			int c = SIZE + COL_OF[cell];
+			int b = 2 * SIZE + BOX_OF[cell];
+			UNIT_CELLS[r][filled[r]++] = cell;
+			UNIT_CELLS[c][filled[c]++] = cell;
+			UNIT_CELLS[b][filled[b]++] = cell;
+		}
+		for (int cell = 0; cell < CELLS; cell++) {
+			int n = 0;
+			for (int other = 0; other < CELLS; other++) {
+				if (other != cell && (ROW_OF[other] == ROW_OF[cell]
+						|| COL_OF[other] == COL_OF[cell]
+						|| BOX_OF[other] == BOX_OF[cell])) {
+					PEERS_OF[cell][n++] = other;
+				}
+			}
+		}
+	}
+
+	/** Value at each cell index, 0 when empty. */
+	private final int[] cells = new int[CELLS];
+
+	/** Free symbols of each row. */
+	private final int[] rowFree = new int[SIZE];
+
+	/** Free symbols of each column. */
+	private final int[] colFree = new int[SIZE];
+
+	/** Free symbols of each box. */
+	private final int[] boxFree = new int[SIZE];
+
+	/**
+	 * Constructor for BitBoard, starts out empty.
+	 */
+	public BitBoard() {
+		clear();
+	}
+
+	/**
+	 * Empties every square of the board.
+	 */
+	public void clear() {
+		for (int i = 0; i < CELLS; i++) {
+			cells[i] = 0;
+		}
+		for (int i = 0; i < SIZE; i++) {
+			rowFree[i] = ALL;
+			colFree[i] = ALL;
+			boxFree[i] = ALL;
+		}
+	}
+
+	/**
+	 * Returns the value at the given cell index.
+	 *
+	 * @param cell index of the square.
+	 * @return value of the square, 0 if empty.
+	 */
+	public int get(int cell) {
+		return cells[cell];
+	}
+
+	/**
+	 * Returns the value at board[x][y].
+	 *
+	 * @param x row of the board.
+	 * @param y column of the board.
+	 * @return value of the square, 0 if empty.
+	 */
+	public int get(int x, int y) {
+		return cells[x * SIZE + y];
+	}
+
+	/**
+	 * Returns the mask of values that could legally go in the given cell.
+	 *
+	 * @param cell index of the square.
+	 * @return candidate mask, bit (val - 1) set iff val is legal.
+	 */
+	public int candidates(int cell) {
+		return rowFree[ROW_OF[cell]] & colFree[COL_OF[cell]]
+				& boxFree[BOX_OF[cell]];
+	}
+
+	/**
+	 * Returns true iff val is free in the row, column and box of the cell.
+	 *
+	 * @param cell index of the square.
+	 * @param val value to put in the square.
+	 * @return true iff given change is legal.
+	 */
+	public boolean legal(int cell, int val) {
+		return (candidates(cell) & (1 << (val - 1))) != 0;
+	}
+
+	/**
+	 * Returns true iff val is free in the row, column and box of board[x][y].
+	 *
+	 * @param x row of the board.
+	 * @param y column of the board.
+	 * @param val value to put in board[x][y].
+	 * @return true iff given change is legal.
+	 */
+	public boolean legal(int x, int y, int val) {
+		return legal(x * SIZE + y, val);
+	}
+
+	/**
+	 * Puts val in the given cell and takes it out of its row, column and box.
+	 *
+	 * @requires cell is empty and legal(cell, val).
+	 * @param cell index of the square.
+	 * @param val value to place.
+	 */
+	public void place(int cell, int val) {
+		int bit = ~(1 << (val - 1));
+		cells[cell] = val;
+		rowFree[ROW_OF[cell]] &= bit;
+		colFree[COL_OF[cell]] &= bit;
+		boxFree[BOX_OF[cell]] &= bit;
+	}
+
+	/**
+	 * Puts val in board[x][y].
+	 *
+	 * @requires board[x][y] is empty and legal(x, y, val).
+	 * @param x row of the board.
+	 * @param y column of the board.
+	 * @param val value to place.
+	 */
+	public void place(int x, int y, int val) {
+		place(x * SIZE + y, val);
+	}
+
+	/**
+	 * Empties the given cell and frees its value again.
+	 *
+	 * @param cell index of the square.
+	 */
+	public void remove(int cell) {
+		int val = cells[cell];
+		if (val == 0) {
+			return;
+		}
+		int bit = 1 << (val - 1);
+		cells[cell] = 0;
+		rowFree[ROW_OF[cell]] |= bit;
+		colFree[COL_OF[cell]] |= bit;
+		boxFree[BOX_OF[cell]] |= bit;
+	}
+
+	/**
+	 * Empties board[x][y].
+	 *
+	 * @param x row of the board.
+	 * @param y column of the board.
+	 */
+	public void remove(int x, int y) {
+		remove(x * SIZE + y);
+	}
+}
@@ -0,0 +1,229 @@
+package com.powerje.sudoku;
+
+/**
+ * Immutable 9x9 board, one byte per square, 0 for empty.  Boards pass
+ * between generator, solver and controller as is, without going through
+ * the comma-separated String form, which is kept for legacy I/O only.
+ *
+ * For storage a board packs into PACKED_BYTES bytes, two squares per byte.
+ */
+public final class Board {
+	/** Number of squares on the board. */
+	public static final int CELLS = BitBoard.CELLS;
+
+	/** Size of a packed board: two 4-bit squares per byte. */
+	public static final int PACKED_BYTES = (CELLS + 1) / 2;
+
+	/** Value of each square, row-major. */
+	private final byte[] cells;
+
+	/**
+	 * Constructor for Board, taking ownership of the array.
+	 *
+	 * @param cells row-major values, not to be changed afterwards.
+	 */
+	private Board(byte[] cells) {
+		this.cells = cells;
+	}
+
+	/**
+	 * Wraps an array the caller hands over; the array must not be written
+	 * to afterwards.  Used where a board is built in a fresh array, so it
+	 * does not need copying again.
+	 *
+	 * @param cells row-major values, 0 for empty.
+	 * @return board backed by cells.
+	 */
+	static Board wrap(byte[] cells) {
+		return new Board(cells);
+	}
+
+	/**
+	 * Copies a board out of a row-major int array.
+	 *
+	 * @param cells row-major values, 0 for empty.
+	 * @return the board.
+	 */
+	public static Board of(int[] cells) {
+		byte[] copy = new byte[CELLS];
+		for (int cell = 0; cell < CELLS; cell++) {
+			copy[cell] = (byte) check(cells[cell]);
+		}
+		return new Board(copy);
+	}
+
+	/**
+	 * Copies a board out of a 2-D int array indexed [x][y].
+	 *
+	 * @param table values by row and column, 0 for empty.
+	 * @return the board.
+	 */
+	public static Board of(int[][] table) {
+		byte[] copy = new byte[CELLS];
+		for (int x = 0; x < BitBoard.SIZE; x++) {
+			for (int y = 0; y < BitBoard.SIZE; y++) {
+				copy[x * BitBoard.SIZE + y] = (byte) check(table[x][y]);
+			}
+		}
+		return new Board(copy);
+	}
+
+	/**
+	 * Parses the legacy comma-separated form, i.e.: regex(([0-9],)^80,[0-9]).
+	 *
+	 * @param s properly formatted String representing a board.
+	 * @return the board.
+	 */
+	public static Board fromString(String s) {
+		byte[] copy = new byte[CELLS];
+		int cell = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == ',') {
+				continue;
+			}
+			if (c < '0' || c > '9' || cell == CELLS) {
+				throw new IllegalArgumentException("Not a board: " + s);
+			}
+			copy[cell++] = (byte) (c - '0');
+		}
+		if (cell != CELLS) {
+			throw new IllegalArgumentException("Not a board: " + s);
+		}
+		return new Board(copy);
+	}
+
+	/**
+	 * Reads a board written by pack.
+	 *
+	 * @param src array holding the packed board.
+	 * @param off offset of the first byte.
+	 * @return the board.
+	 */
+	public static Board unpack(byte[] src, int off) {
+		byte[] copy = new byte[CELLS];
+		for (int cell = 0; cell < CELLS; cell++) {
+			int b = src[off + (cell >> 1)];
+			int val = (cell & 1) == 0 ? (b >> 4) & 0xf : b & 0xf;
+			copy[cell] = (byte) check(val);
+		}
+		return new Board(copy);
+	}
+
+	/**
+	 * @param val value of a square.
+	 * @return val, if it is a legal square value.
+	 */
+	private static int check(int val) {
+		if (val < 0 || val > BitBoard.SIZE) {
+			throw new IllegalArgumentException("Bad square value: " + val);
+		}
+		return val;
+	}
+
+	/**
+	 * Writes the board as PACKED_BYTES bytes, high nibble first.
+	 *
+	 * @param dst array to write to.
+	 * @param off offset of the first byte.
+	 */
+	public void pack(byte[] dst, int off) {
+		for (int i = 0; i < PACKED_BYTES; i++) {
+			int hi = cells[2 * i];
+			int lo = 2 * i + 1 < CELLS ? cells[2 * i + 1] : 0;
+			dst[off + i] = (byte) ((hi << 4) | lo);
+		}
+	}
+
+	/**
+	 * @param cell index of the square, x * 9 + y.
+	 * @return value of the square, 0 if empty.
+	 */
+	public int get(int cell) {
+		return cells[cell];
+	}
+
+	/**
+	 * @param x row of the board.
+	 * @param y column of the board.
+	 * @return value of board[x][y], 0 if empty.
+	 */
+	public int get(int x, int y) {
+		return cells[x * BitBoard.SIZE + y];
+	}
+
+	/**
+	 * @return number of squares that are filled in.
+	 */
+	public int clueCount() {
+		int n = 0;
+		for (int cell = 0; cell < CELLS; cell++) {
+			if (cells[cell] != 0) {
+				++n;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Copies the board into a row-major int array.
+	 *
+	 * @param out receives the CELLS values.
+	 */
+	public void copyTo(int[] out) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			out[cell] = cells[cell];
+		}
+	}
+
+	/**
+	 * Copies the board into a 2-D int array indexed [x][y].
+	 *
+	 * @param table receives the values.
+	 */
+	public void copyTo(int[][] table) {
+		for (int x = 0; x < BitBoard.SIZE; x++) {
+			for (int y = 0; y < BitBoard.SIZE; y++) {
+				table[x][y] = cells[x * BitBoard.SIZE + y];
+			}
+		}
+	}
+
+	/**
+	 * @return the board as a new row-major int array.
+	 */
+	public int[] toArray() {
+		int[] out = new int[CELLS];
+		copyTo(out);
+		return out;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Board)) {
+			return false;
+		}
+		return java.util.Arrays.equals(cells, ((Board) o).cells);
+	}
+
+	@Override
+	public int hashCode() {
+		return java.util.Arrays.hashCode(cells);
+	}
+
+	/**
+	 * @return properly formatted String representing the board,
+	 * i.e.: regex(([0-9],)^80,[0-9])
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sBuilder = new StringBuilder(2 * CELLS - 1);
+		for (int cell = 0; cell < CELLS; cell++) {
+			if (cell != 0) {
+				sBuilder.append(',');
+			}
+			sBuilder.append((char) ('0' + cells[cell]));
+		}
+		return sBuilder.toString();
+	}
+}
@@ -0,0 +1,24 @@
+package com.powerje.sudoku;
+
+/**
+ * Lets one thread ask a running solve on another thread to give up.
+ * Solvers poll the token as they search and stop soon after cancel().
+ */
+public final class CancellationToken {
+	/** true once cancel() has been called. */
+	private volatile boolean cancelled;
+
+	/**
+	 * Asks every solve watching this token to stop.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return true iff cancel() has been called.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,311 @@
+package com.powerje.sudoku;
+
+/**
+ * Maps a board to its canonical form, the lexicographically smallest board
+ * it can be turned into by the transformations of Transformer: digit
+ * relabelling, row and band permutations, column and stack permutations,
+ * and transposition.  Two boards are equivalent iff their canonical forms
+ * are equal, and the 64-bit fingerprint of the canonical form identifies
+ * an equivalence class for deduplication.
+ *
+ * Empty squares stay 0 and so sort first.  For a fixed order of the squares
+ * the smallest relabelling names the digits 1, 2, 3... in order of first
+ * appearance, so only orientations, column orders and row orders are run
+ * through.  For each orientation and first row, the column order is chosen
+ * a column at a time against the best first row so far; for each column
+ * order that survives, the other rows are chosen one at a time.  Either
+ * way a choice is dropped as soon as it makes the board so far larger than
+ * the best, branch and bound.
+ *
+ * An instance holds its scratch space and must not be shared between
+ * threads.
+ */
+public final class Canonicalizer {
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Large grid size. */
+	private static final int SIZE = BitBoard.SIZE;
+
+	/** Small grid size. */
+	private static final int SMALL_GRID = BitBoard.SMALL_GRID;
+
+	/** Row code larger than any real one. */
+	private static final long UNSET = Long.MAX_VALUE;
+
+	/** FNV-1a 64-bit offset basis. */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/** FNV-1a 64-bit prime. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** Board in the current orientation. */
+	private final int[] grid = new int[CELLS];
+
+	/** Column order being tried, built up by chooseColumn. */
+	private final int[] columns = new int[SIZE];
+
+	/** Rows of the best board found so far, 4 bits per square. */
+	private final long[] best = new long[SIZE];
+
+	/** Digit labels in force on entry to each depth, 0 if not yet named. */
+	private final int[][] labels = new int[SIZE + 1][SIZE + 1];
+
+	/** Next label to hand out on entry to each depth. */
+	private final int[] nextLabel = new int[SIZE + 1];
+
+	/** Row chosen at each depth. */
+	private final int[] chosen = new int[SIZE];
+
+	/** Labels of the first row while its columns are being chosen. */
+	private final int[] firstLabels = new int[SIZE + 1];
+
+	/**
+	 * Returns the canonical form of a board.
+	 *
+	 * @param b board to canonicalize.
+	 * @return the smallest equivalent board.
+	 */
+	public Board canonical(Board b) {
+		search(b);
+		byte[] cells = new byte[CELLS];
+		for (int x = 0; x < SIZE; x++) {
+			long row = best[x];
+			for (int y = SIZE - 1; y >= 0; y--) {
+				cells[x * SIZE + y] = (byte) (row & 0xf);
+				row >>>= 4;
+			}
+		}
+		return Board.wrap(cells);
+	}
+
+	/**
+	 * Returns the fingerprint of a board, equal for equivalent boards.
+	 *
+	 * @param b board to fingerprint.
+	 * @return 64-bit FNV-1a hash of the canonical form.
+	 */
+	public long fingerprint(Board b) {
+		search(b);
+		long hash = FNV_OFFSET;
+		for (int x = 0; x < SIZE; x++) {
+			for (int shift = 4 * (SIZE - 1); shift >= 0; shift -= 4) {
+				hash ^= (best[x] >>> shift) & 0xf;
+				hash *= FNV_PRIME;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Fills best with the rows of the canonical form of b.
+	 *
+	 * @param b board to canonicalize.
+	 */
+	private void search(Board b) {
+		for (int x = 0; x < SIZE; x++) {
+			best[x] = UNSET;
+		}
+		// a longer run of leading empty squares makes a smaller first row,
+		// so only the lines with the longest possible run can come first
+		int longest = 0;
+		for (int i = 0; i < SIZE; i++) {
+			longest = Math.max(longest, Math.max(leadingEmpty(b, i, false),
+					leadingEmpty(b, i, true)));
+		}
+		for (int transpose = 0; transpose < 2; transpose++) {
+			for (int x = 0; x < SIZE; x++) {
+				for (int y = 0; y < SIZE; y++) {
+					grid[x * SIZE + y] = (transpose == 0)
+							? b.get(x, y) : b.get(y, x);
+				}
+			}
+			for (int r = 0; r < SIZE; r++) {
+				if (leadingEmpty(b, r, transpose != 0) != longest) {
+					continue;
+				}
+				for (int val = 0; val <= SIZE; val++) {
+					firstLabels[val] = 0;
+				}
+				chosen[0] = r;
+				chooseColumn(0, 0, 1, 0);
+			}
+		}
+	}
+
+	/**
+	 * Returns the longest run of empty squares a line can start with once
+	 * its squares are reordered the way columns can be: stacks in any
+	 * order, and columns in any order within their stack.  That is every
+	 * stack that is all empty, then as many empty squares as the emptiest
+	 * other stack has.
+	 *
+	 * @param b board.
+	 * @param i row, or column if column is true, of the board.
+	 * @param column true to look at column i rather than row i.
+	 * @return longest run of leading empty squares.
+	 */
+	private static int leadingEmpty(Board b, int i, boolean column) {
+		int full = 0;
+		int partial = 0;
+		for (int stack = 0; stack < SIZE; stack += SMALL_GRID) {
+			int n = 0;
+			for (int j = stack; j < stack + SMALL_GRID; j++) {
+				if ((column ? b.get(j, i) : b.get(i, j)) == 0) {
+					++n;
+				}
+			}
+			if (n == SMALL_GRID) {
+				full += n;
+			} else {
+				partial = Math.max(partial, n);
+			}
+		}
+		return full + partial;
+	}
+
+	/**
+	 * Tries every column allowed at a position of the column order,
+	 * keeping the first row so far no larger than the best first row, and
+	 * goes on to the other rows once the order is complete.
+	 *
+	 * @param pos position in the column order being chosen.
+	 * @param used mask of the columns of grid already placed.
+	 * @param next next label to hand out in the first row.
+	 * @param code first row so far, 4 bits per square.
+	 */
+	private void chooseColumn(int pos, int used, int next, long code) {
+		if (pos == SIZE) {
+			if (code > best[0]) {
+				return;
+			}
+			if (code < best[0]) {
+				best[0] = code;
+				for (int x = 1; x < SIZE; x++) {
+					best[x] = UNSET;
+				}
+			}
+			System.arraycopy(firstLabels, 0, labels[1], 0, SIZE + 1);
+			nextLabel[1] = next;
+			chooseRow(1, 1 << chosen[0]);
+			return;
+		}
+		int first;
+		int last;
+		if (pos % SMALL_GRID == 0) {
+			// a new stack: any column of a stack not used yet
+			first = 0;
+			last = SIZE;
+		} else {
+			int stack = columns[pos - 1] / SMALL_GRID * SMALL_GRID;
+			first = stack;
+			last = stack + SMALL_GRID;
+		}
+		long bound = best[0] >>> (4 * (SIZE - 1 - pos));
+		int base = chosen[0] * SIZE;
+		for (int c = first; c < last; c++) {
+			if ((used & (1 << c)) != 0) {
+				continue;
+			}
+			if (pos % SMALL_GRID == 0
+					&& (used & (7 << (c / SMALL_GRID * SMALL_GRID))) != 0) {
+				continue;
+			}
+			int val = grid[base + c];
+			boolean named = val != 0 && firstLabels[val] == 0;
+			int label = named ? next : firstLabels[val];
+			long extended = (code << 4) | label;
+			if (extended > bound) {
+				continue;
+			}
+			if (named) {
+				firstLabels[val] = next;
+			}
+			columns[pos] = c;
+			chooseColumn(pos + 1, used | (1 << c), named ? next + 1 : next,
+					extended);
+			if (named) {
+				firstLabels[val] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Tries every row allowed at a depth, keeping the board so far no
+	 * larger than best.
+	 *
+	 * @requires rows 0 to depth - 1 of the board so far equal those of best.
+	 * @param depth row of the board being chosen.
+	 * @param used mask of the rows of grid already chosen.
+	 */
+	private void chooseRow(int depth, int used) {
+		if (depth == SIZE) {
+			return;
+		}
+		int first;
+		int last;
+		if (depth % SMALL_GRID == 0) {
+			// a new band: any row of a band not used yet
+			first = 0;
+			last = SIZE;
+		} else {
+			int band = chosen[depth - 1] / SMALL_GRID * SMALL_GRID;
+			first = band;
+			last = band + SMALL_GRID;
+		}
+		for (int r = first; r < last; r++) {
+			if ((used & (1 << r)) != 0) {
+				continue;
+			}
+			if (depth % SMALL_GRID == 0
+					&& (used & (7 << (r / SMALL_GRID * SMALL_GRID))) != 0) {
+				continue;
+			}
+			long code = rowCode(depth, r);
+			if (code > best[depth]) {
+				continue;
+			}
+			if (code < best[depth]) {
+				best[depth] = code;
+				for (int x = depth + 1; x < SIZE; x++) {
+					best[x] = UNSET;
+				}
+			}
+			chosen[depth] = r;
+			chooseRow(depth + 1, used | (1 << r));
+		}
+	}
+
+	/**
+	 * Relabels a row of grid in the current column order with the labels in
+	 * force at depth, naming new digits as they appear, and leaves the
+	 * extended labels for depth + 1.  Stops as soon as the row is sure to
+	 * be larger than the best row at depth.
+	 *
+	 * @param depth row of the board being chosen.
+	 * @param r row of grid.
+	 * @return the relabelled row, 4 bits per square, first square highest,
+	 * or UNSET if it is larger than best[depth].
+	 */
+	private long rowCode(int depth, int r) {
+		int[] in = labels[depth];
+		int[] out = labels[depth + 1];
+		System.arraycopy(in, 0, out, 0, SIZE + 1);
+		int next = nextLabel[depth];
+		long bound = best[depth];
+		long code = 0;
+		int base = r * SIZE;
+		for (int y = 0; y < SIZE; y++) {
+			int val = grid[base + columns[y]];
+			if (val != 0 && out[val] == 0) {
+				out[val] = next++;
+			}
+			code = (code << 4) | out[val];
+			if (code > (bound >>> (4 * (SIZE - 1 - y)))) {
+				return UNSET;
+			}
+		}
+		nextLabel[depth + 1] = next;
+		return code;
+	}
+}
@@ -0,0 +1,170 @@
+package com.powerje.sudoku;
+
+/**
+ * Thread-safe front for the 9x9 engines, for services running many solves
+ * at once.  Each call borrows a Workspace for its duration, so calls do not
+ * lock, do not allocate once the workspaces are warm, and may re-enter, e.g.
+ * from a callback.  One instance can be shared by every thread; SudokuModel,
+ * which keeps its board in the instance, cannot.  Solves and counts are
+ * recorded in a SolverMetrics.
+ */
+public final class ConcurrentSolver implements Solver {
+	/** Source of workspaces. */
+	private final Workspaces workspaces;
+
+	/** Where solves are recorded, or null. */
+	private final SolverMetrics metrics;
+
+	/**
+	 * Constructor for ConcurrentSolver using the shared Workspaces and
+	 * recording into SolverMetrics.global().
+	 */
+	public ConcurrentSolver() {
+		this(Workspaces.shared(), SolverMetrics.global());
+	}
+
+	/**
+	 * Constructor for ConcurrentSolver.
+	 *
+	 * @param workspaces source of workspaces.
+	 * @param metrics where solves are recorded, or null to record nothing.
+	 */
+	public ConcurrentSolver(Workspaces workspaces, SolverMetrics metrics) {
+		this.workspaces = workspaces;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean solve(int[] cells) {
+		Workspace w = workspaces.acquire();
+		try {
+			long start = System.nanoTime();
+			boolean solved = w.solver().solve(cells);
+			record(w, start);
+			return solved;
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * Searches for a solution within a budget.
+	 *
+	 * @param cells row-major board, 0 for empty squares.  Left untouched.
+	 * @param budget limits of the search.
+	 * @param token token to give up on, or null.
+	 * @return outcome of the search.
+	 */
+	public SolveResult solve(int[] cells, SolveBudget budget,
+			CancellationToken token) {
+		Workspace w = workspaces.acquire();
+		try {
+			SolveResult result = w.solver().solve(cells, budget, token);
+			if (metrics != null) {
+				metrics.recordSolve(w.solver(), result.getElapsedNanos());
+			}
+			return result;
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * Solves a board.
+	 *
+	 * @param puzzle the board.
+	 * @return the solved board, or null if it has no solution.
+	 */
+	public Board solve(Board puzzle) {
+		Workspace w = workspaces.acquire();
+		try {
+			int[] cells = w.cells();
+			puzzle.copyTo(cells);
+			long start = System.nanoTime();
+			boolean solved = w.solver().solve(cells);
+			record(w, start);
+			return solved ? Board.of(cells) : null;
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * Counts solutions up to a limit.
+	 *
+	 * @param cells row-major board, 0 for empty squares.  Left untouched.
+	 * @param limit number of solutions after which to stop.
+	 * @return number of solutions found, at most limit.
+	 */
+	public int countSolutions(int[] cells, int limit) {
+		Workspace w = workspaces.acquire();
+		try {
+			long start = System.nanoTime();
+			int found = w.solver().countSolutions(cells, limit);
+			record(w, start);
+			return found;
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * @param puzzle the board.
+	 * @return true iff the board has exactly one solution.
+	 */
+	public boolean isUnique(Board puzzle) {
+		Workspace w = workspaces.acquire();
+		try {
+			int[] cells = w.cells();
+			puzzle.copyTo(cells);
+			long start = System.nanoTime();
+			int found = w.solver().countSolutions(cells, 2);
+			record(w, start);
+			return found == 1;
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * Grades a puzzle.
+	 *
+	 * @param puzzle the board.
+	 * @return its difficulty, or null if it has no solution.
+	 */
+	public Difficulty grade(Board puzzle) {
+		Workspace w = workspaces.acquire();
+		try {
+			return w.grader().grade(puzzle);
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * @param b the board.
+	 * @return 64-bit fingerprint of its canonical form.
+	 */
+	public long fingerprint(Board b) {
+		Workspace w = workspaces.acquire();
+		try {
+			return w.canonicalizer().fingerprint(b);
+		} finally {
+			workspaces.release(w);
+		}
+	}
+
+	/**
+	 * Records the last search of a workspace in metrics, if any.
+	 *
+	 * @param w the workspace.
+	 * @param start System.nanoTime() when the search started.
+	 */
+	private void record(Workspace w, long start) {
+		if (metrics != null) {
+			metrics.recordSolve(w.solver(), System.nanoTime() - start);
+		}
+	}
+}
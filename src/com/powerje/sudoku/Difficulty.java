@@ -0,0 +1,21 @@
+package com.powerje.sudoku;
+
+/**
+ * Difficulty bands of a puzzle, from the hardest Technique it needs.
+ */
+public enum Difficulty {
+	/** Singles only. */
+	EASY,
+
+	/** Locked candidates and pairs. */
+	MEDIUM,
+
+	/** Triples, X-Wings and XY-Wings. */
+	HARD,
+
+	/** Swordfish and chains. */
+	EXPERT,
+
+	/** Beyond every Technique the Grader knows: needs trial and error. */
+	DIABOLICAL
+}
@@ -0,0 +1,260 @@
+package com.powerje.sudoku;
+
+/**
+ * Dancing Links solver.  Sudoku is treated as an exact cover problem with
+ * 324 columns (every square filled, every symbol once per row, column and
+ * box) and 729 rows (one per square and symbol), and solved with Knuth's
+ * Algorithm X.  There is no iteration cap: any valid board is solved,
+ * and a board that cannot be solved is reported as such.
+ *
+ * The matrix is built once per instance and restored after every solve,
+ * so an instance can be reused but must not be shared between threads.
+ */
+public final class DlxSolver implements Solver {
+	/** Large grid size. */
+	private static final int SIZE = BitBoard.SIZE;
+
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Constraints per square and symbol. */
+	private static final int CONSTRAINTS = 4;
+
+	/** Number of columns in the exact cover matrix. */
+	private static final int COLUMNS = CONSTRAINTS * CELLS;
+
+	/** Number of rows in the exact cover matrix. */
+	private static final int ROWS = CELLS * SIZE;
+
+	/** Index of the root header. */
+	private static final int ROOT = 0;
+
+	/** Total number of nodes, root and column headers included. */
+	private static final int NODES = 1 + COLUMNS + ROWS * CONSTRAINTS;
+
+	/** Left link of each node. */
+	private final int[] left = new int[NODES];
+
+	/** Right link of each node. */
+	private final int[] right = new int[NODES];
+
+	/** Up link of each node. */
+	private final int[] up = new int[NODES];
+
+	/** Down link of each node. */
+	private final int[] down = new int[NODES];
+
+	/** Column header of each node. */
+	private final int[] column = new int[NODES];
+
+	/** Matrix row (cell * SIZE + val - 1) of each node. */
+	private final int[] rowOf = new int[NODES];
+
+	/** Number of nodes left in each column. */
+	private final int[] count = new int[1 + COLUMNS];
+
+	/** true iff the column is currently covered by a clue. */
+	private final boolean[] covered = new boolean[1 + COLUMNS];
+
+	/** First node of each matrix row. */
+	private final int[] rowStart = new int[ROWS];
+
+	/** Rows picked by the search, one per depth. */
+	private final int[] picked = new int[CELLS];
+
+	/** Clue rows selected before the search, in order. */
+	private final int[] clues = new int[CELLS];
+
+	/** Board being solved. */
+	private int[] target;
+
+	/**
+	 * Constructor for DlxSolver, builds the exact cover matrix.
+	 */
+	public DlxSolver() {
+		for (int c = 0; c <= COLUMNS; c++) {
+			left[c] = c == 0 ? COLUMNS : c - 1;
+			right[c] = c == COLUMNS ? 0 : c + 1;
+			up[c] = c;
+			down[c] = c;
+			column[c] = c;
+		}
+
+		int node = COLUMNS + 1;
+		for (int cell = 0; cell < CELLS; cell++) {
+			int x = BitBoard.ROW_OF[cell];
+			int y = BitBoard.COL_OF[cell];
+			int b = BitBoard.BOX_OF[cell];
+			for (int k = 0; k < SIZE; k++) {
+				int row = cell * SIZE + k;
+				rowStart[row] = node;
+				// columns are 1-based, the root is column 0
+				int[] cols = {
+					1 + cell,
+					1 + CELLS + x * SIZE + k,
+					1 + 2 * CELLS + y * SIZE + k,
+					1 + 3 * CELLS + b * SIZE + k
+				};
+				for (int i = 0; i < CONSTRAINTS; i++) {
+					int c = cols[i];
+					column[node] = c;
+					rowOf[node] = row;
+					// append to the bottom of column c
+					up[node] = up[c];
+					down[node] = c;
+					down[up[c]] = node;
+					up[c] = node;
+					++count[c];
+					// link into the row
+					left[node] = i == 0 ? node + CONSTRAINTS - 1 : node - 1;
+					right[node] = i == CONSTRAINTS - 1
+							? node - CONSTRAINTS + 1 : node + 1;
+					++node;
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean solve(int[] cells) {
+		target = cells;
+		int selected = 0;
+		boolean consistent = true;
+
+		// selecting the clue rows up front leaves only empty squares to search
+		for (int cell = 0; cell < CELLS && consistent; cell++) {
+			if (cells[cell] == 0) {
+				continue;
+			}
+			int start = rowStart[cell * SIZE + cells[cell] - 1];
+			int j = start;
+			do {
+				if (covered[column[j]]) {
+					consistent = false;
+				}
+				j = right[j];
+			} while (j != start);
+			if (consistent) {
+				selectRow(start);
+				clues[selected++] = start;
+			}
+		}
+
+		boolean solved = consistent && search(0);
+
+		while (selected > 0) {
+			unselectRow(clues[--selected]);
+		}
+		target = null;
+		return solved;
+	}
+
+	/**
+	 * Algorithm X: cover the column with the fewest rows and try each row.
+	 * The matrix is always restored on the way out.
+	 *
+	 * @param depth number of rows picked so far.
+	 * @return true iff a solution was found and written to target.
+	 */
+	private boolean search(int depth) {
+		if (right[ROOT] == ROOT) {
+			for (int i = 0; i < depth; i++) {
+				int row = rowOf[picked[i]];
+				target[row / SIZE] = row % SIZE + 1;
+			}
+			return true;
+		}
+
+		int best = right[ROOT];
+		for (int c = right[best]; c != ROOT; c = right[c]) {
+			if (count[c] < count[best]) {
+				best = c;
+			}
+		}
+		if (count[best] == 0) {
+			return false;
+		}
+
+		boolean found = false;
+		cover(best);
+		for (int r = down[best]; r != best && !found; r = down[r]) {
+			picked[depth] = r;
+			for (int j = right[r]; j != r; j = right[j]) {
+				cover(column[j]);
+			}
+			found = search(depth + 1);
+			for (int j = left[r]; j != r; j = left[j]) {
+				uncover(column[j]);
+			}
+		}
+		uncover(best);
+		return found;
+	}
+
+	/**
+	 * Covers every column of the row starting at the given node.
+	 *
+	 * @param start first node of the row.
+	 */
+	private void selectRow(int start) {
+		int j = start;
+		do {
+			cover(column[j]);
+			covered[column[j]] = true;
+			j = right[j];
+		} while (j != start);
+	}
+
+	/**
+	 * Undoes selectRow, uncovering in reverse order.
+	 *
+	 * @param start first node of the row.
+	 */
+	private void unselectRow(int start) {
+		int j = left[start];
+		while (true) {
+			covered[column[j]] = false;
+			uncover(column[j]);
+			if (j == start) {
+				break;
+			}
+			j = left[j];
+		}
+	}
+
+	/**
+	 * Removes column c from the header list and its rows from the matrix.
+	 *
+	 * @param c column header.
+	 */
+	private void cover(int c) {
+		right[left[c]] = right[c];
+		left[right[c]] = left[c];
+		for (int i = down[c]; i != c; i = down[i]) {
+			for (int j = right[i]; j != i; j = right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				--count[column[j]];
+			}
+		}
+	}
+
+	/**
+	 * Puts column c back, exactly undoing cover(c).
+	 *
+	 * @param c column header.
+	 */
+	private void uncover(int c) {
+		for (int i = up[c]; i != c; i = up[i]) {
+			for (int j = left[i]; j != i; j = left[j]) {
+				++count[column[j]];
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		}
+		right[left[c]] = c;
+		left[right[c]] = c;
+	}
+}
@@ -0,0 +1,322 @@
+package com.powerje.sudoku;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates 9x9 puzzles with a unique solution, solved grid first.  A
+ * random complete grid is built by filling the three boxes on the diagonal,
+ * which cannot clash, and letting an IterativeSolver that tries candidates
+ * in random order complete the rest.
+ * Clues are then taken away in random order, keeping only removals after
+ * which the puzzle still has exactly one solution, until the target clue
+ * count is reached or every square has been tried.
+ *
+ * Every uniqueness check is capped at CHECK_NODES nodes and the digging as
+ * a whole by a time budget.  A check that hits its cap keeps its clue, and
+ * running out of time stops the digging early, so generate() always returns
+ * a unique puzzle in bounded time, sometimes with more clues than asked for.
+ * generate(Difficulty, SolveBudget) steers the digging toward a
+ * Difficulty band instead of a clue count, grading the puzzle as it thins
+ * out.  An instance must not be shared between threads.
+ */
+public final class Generator {
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Time allowed for digging by default, in milliseconds. */
+	public static final long DEFAULT_MILLIS = 100;
+
+	/**
+	 * Nodes allowed per uniqueness check.  Nearly every 9x9 check is
+	 * settled within a few dozen nodes.
+	 */
+	private static final long CHECK_NODES = 4096;
+
+	/**
+	 * Nodes allowed for completing a grid.  A random completion takes
+	 * about 16 nodes and rarely more than 50.
+	 */
+	private static final long FILL_NODES = 1024;
+
+	/** Starts tried before fillGrid() gives up. */
+	private static final int MAX_FILL_ATTEMPTS = 16;
+
+	/**
+	 * Puzzles with more clues than this are not graded while digging;
+	 * nearly all of them need nothing beyond singles.
+	 */
+	private static final int GRADE_BELOW = 36;
+
+	/** Source of randomness. */
+	private final Random random;
+
+	/** Grader used to steer toward a difficulty, created on first use. */
+	private Grader grader;
+
+	/** Solver used to fill grids and check uniqueness. */
+	private final IterativeSolver solver = new IterativeSolver();
+
+	/** Budget of one uniqueness check. */
+	private final SolveBudget checkBudget = SolveBudget.ofNodes(CHECK_NODES);
+
+	/** Budget of completing one grid. */
+	private final SolveBudget fillBudget = SolveBudget.ofNodes(FILL_NODES);
+
+	/** Solution of the last generated puzzle. */
+	private final int[] solution = new int[CELLS];
+
+	/** Grids the last generate dropped and started over. */
+	private int retries;
+
+	/** Where generations are recorded, or null. */
+	private SolverMetrics metrics = SolverMetrics.global();
+
+	/**
+	 * Constructor for Generator.
+	 *
+	 * @param random source of randomness.
+	 */
+	public Generator(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Selects where generations are recorded.
+	 *
+	 * @param metrics metrics to record into, SolverMetrics.global() by
+	 * default, or null to record nothing.
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Generates a puzzle with a unique solution within DEFAULT_MILLIS.
+	 *
+	 * @param clues number of clues to aim for.
+	 * @return the puzzle.
+	 */
+	public Board generate(int clues) {
+		return generate(clues, SolveBudget.ofTime(DEFAULT_MILLIS,
+				TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Generates a puzzle with a unique solution.
+	 *
+	 * @param clues number of clues to aim for.
+	 * @param budget time allowed for taking clues away; its node limit, if
+	 * any, bounds the total nodes of the uniqueness checks.
+	 * @return the puzzle.
+	 */
+	public Board generate(int clues, SolveBudget budget) {
+		long start = System.nanoTime();
+		retries = 0;
+		fillGrid();
+		int[] puzzle = solution.clone();
+		int remaining = CELLS;
+		long nodes = 0;
+
+		int[] order = shuffled(CELLS);
+		for (int i = 0; i < CELLS && remaining > clues; i++) {
+			if (outOfTime(start, budget) || nodes >= budget.getNodes()) {
+				break;
+			}
+			int cell = order[i];
+			int val = puzzle[cell];
+			puzzle[cell] = 0;
+			int found = solver.countSolutions(puzzle, 2, checkBudget);
+			nodes += solver.getNodes();
+			if (found == 1 && solver.getInterruption() == null) {
+				--remaining;
+			} else {
+				puzzle[cell] = val;
+			}
+		}
+		record(start);
+		return Board.of(puzzle);
+	}
+
+	/**
+	 * Generates a puzzle of the given difficulty.  Clues are taken away
+	 * until the puzzle grades as target; a removal that makes it harder
+	 * than target is put back and the next square tried.  A grid that runs
+	 * out of squares while still too easy is dropped for a fresh one.
+	 * When the budget runs out, the attempt closest to target is returned.
+	 *
+	 * @param target difficulty wanted.
+	 * @param budget time allowed; without a time limit this keeps trying
+	 * until it hits target.
+	 * @return the puzzle with its solution, rated with the ordinal of the
+	 * Difficulty it actually has, which getDifficulty() returns.
+	 */
+	public Puzzle generate(Difficulty target, SolveBudget budget) {
+		if (grader == null) {
+			grader = new Grader();
+		}
+		long start = System.nanoTime();
+		retries = -1;
+		Puzzle best = null;
+		int bestDistance = Integer.MAX_VALUE;
+		do {
+			++retries;
+			fillGrid();
+			int[] puzzle = solution.clone();
+			Difficulty reached = dig(puzzle, target, start, budget);
+			int distance = Math.abs(reached.ordinal() - target.ordinal());
+			if (distance < bestDistance) {
+				best = new Puzzle(Board.of(puzzle), Board.of(solution),
+						reached.ordinal());
+				bestDistance = distance;
+			}
+		} while (bestDistance != 0 && !outOfTime(start, budget));
+		record(start);
+		return best;
+	}
+
+	/**
+	 * Records the generate that started at start in metrics, if any.
+	 *
+	 * @param start System.nanoTime() when it started.
+	 */
+	private void record(long start) {
+		if (metrics != null) {
+			metrics.recordGeneration(System.nanoTime() - start, retries);
+		}
+	}
+
+	/**
+	 * Takes clues away from a full grid toward a difficulty.
+	 *
+	 * @param puzzle the solved grid, dug in place.
+	 * @param target difficulty wanted.
+	 * @param start System.nanoTime() the budget counts from.
+	 * @param budget time allowed.
+	 * @return difficulty of the puzzle as left.
+	 */
+	private Difficulty dig(int[] puzzle, Difficulty target, long start,
+			SolveBudget budget) {
+		int remaining = CELLS;
+		int[] order = shuffled(CELLS);
+		for (int i = 0; i < CELLS && !outOfTime(start, budget); i++) {
+			int cell = order[i];
+			int val = puzzle[cell];
+			puzzle[cell] = 0;
+			int found = solver.countSolutions(puzzle, 2, checkBudget);
+			if (found != 1 || solver.getInterruption() != null) {
+				puzzle[cell] = val;
+				continue;
+			}
+			if (remaining - 1 >= GRADE_BELOW) {
+				--remaining;
+				continue;
+			}
+			Difficulty d = grader.grade(Board.of(puzzle));
+			if (d.compareTo(target) > 0) {
+				// too hard, try another square instead
+				puzzle[cell] = val;
+				continue;
+			}
+			--remaining;
+			if (d == target) {
+				return d;
+			}
+		}
+		return grader.grade(Board.of(puzzle));
+	}
+
+	/**
+	 * @param start System.nanoTime() the budget counts from.
+	 * @param budget time allowed.
+	 * @return true iff the budget has a time limit and it has passed.
+	 */
+	private static boolean outOfTime(long start, SolveBudget budget) {
+		return budget.hasTimeLimit()
+				&& System.nanoTime() - start >= budget.getNanos();
+	}
+
+	/**
+	 * @return grids the last generate dropped and started over because
+	 * they could not reach the target difficulty; always 0 when generating
+	 * to a clue count.
+	 */
+	public int getRetries() {
+		return retries;
+	}
+
+	/**
+	 * Returns the solution of the last generated puzzle.
+	 *
+	 * @return the solved board.
+	 */
+	public Board getSolution() {
+		return Board.of(solution);
+	}
+
+	/**
+	 * Fills solution with a random complete grid.  Any filling of the
+	 * diagonal boxes can be completed, so a start is only dropped if the
+	 * search overruns FILL_NODES.
+	 *
+	 * @throws IllegalStateException if MAX_FILL_ATTEMPTS starts all failed.
+	 */
+	private void fillGrid() {
+		solver.setRandom(random);
+		try {
+			for (int attempt = 0; attempt < MAX_FILL_ATTEMPTS; attempt++) {
+				if (fillAttempt()) {
+					return;
+				}
+			}
+		} finally {
+			// uniqueness checks need no randomness
+			solver.setRandom(null);
+		}
+		throw new IllegalStateException("No grid found in "
+				+ MAX_FILL_ATTEMPTS + " attempts");
+	}
+
+	/**
+	 * Fills the diagonal boxes of solution at random and completes it.
+	 *
+	 * @return true iff solution was completed.
+	 */
+	private boolean fillAttempt() {
+		for (int i = 0; i < CELLS; i++) {
+			solution[i] = 0;
+		}
+		// boxes on the diagonal share no row or column
+		for (int b = 0; b < BitBoard.SMALL_GRID; b++) {
+			int[] symbols = shuffled(BitBoard.SIZE);
+			int[] cells = BitBoard.UNIT_CELLS[2 * BitBoard.SIZE
+					+ b * (BitBoard.SMALL_GRID + 1)];
+			for (int i = 0; i < BitBoard.SIZE; i++) {
+				solution[cells[i]] = symbols[i] + 1;
+			}
+		}
+		if (solver.countSolutions(solution, 1, fillBudget) != 1) {
+			return false;
+		}
+		solver.copySolution(0, solution);
+		return true;
+	}
+
+	/**
+	 * @param n number of values.
+	 * @return 0 to n - 1 in random order.
+	 */
+	private int[] shuffled(int n) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = values[i];
+			values[i] = values[j];
+			values[j] = t;
+		}
+		return values;
+	}
+}
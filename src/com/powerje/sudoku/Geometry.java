@@ -0,0 +1,140 @@
+package com.powerje.sudoku;
+
+/**
+ * Shape of a Sudoku board with boxes of boxSize x boxSize squares: the
+ * board is boxSize^2 squares on a side and uses that many symbols.  Holds
+ * the row, column, box, unit and peer tables the wide engines index by
+ * cell, so they are built once per box size and shared.
+ */
+public final class Geometry {
+	/** Smallest supported box size. */
+	public static final int MIN_BOX = 2;
+
+	/** Largest supported box size, the most symbols a long mask can hold. */
+	public static final int MAX_BOX = 8;
+
+	/** Geometries built so far, by box size. */
+	private static final Geometry[] CACHE = new Geometry[MAX_BOX + 1];
+
+	/** Small grid size. */
+	private final int boxSize;
+
+	/** Large grid size, also the number of symbols. */
+	private final int size;
+
+	/** Number of squares on the board. */
+	private final int cells;
+
+	/** Mask with every symbol free. */
+	private final long all;
+
+	/** Row of each cell index. */
+	final int[] rowOf;
+
+	/** Column of each cell index. */
+	final int[] colOf;
+
+	/** Box of each cell index. */
+	final int[] boxOf;
+
+	/** Cell indexes of each row, then each column, then each box. */
+	final int[][] units;
+
+	/** Cell indexes of the peers of each cell index. */
+	final int[][] peers;
+
+	/**
+	 * Constructor for Geometry.
+	 *
+	 * @param boxSize small grid size.
+	 */
+	private Geometry(int boxSize) {
+		this.boxSize = boxSize;
+		size = boxSize * boxSize;
+		cells = size * size;
+		all = size == Long.SIZE ? -1L : (1L << size) - 1;
+
+		rowOf = new int[cells];
+		colOf = new int[cells];
+		boxOf = new int[cells];
+		units = new int[3 * size][size];
+		int[] filled = new int[3 * size];
+		for (int cell = 0; cell < cells; cell++) {
+			rowOf[cell] = cell / size;
+			colOf[cell] = cell % size;
+			boxOf[cell] = (rowOf[cell] / boxSize) * boxSize
+					+ colOf[cell] / boxSize;
+			int r = rowOf[cell];
+			int c = size + colOf[cell];
+			int b = 2 * size + boxOf[cell];
+			units[r][filled[r]++] = cell;
+			units[c][filled[c]++] = cell;
+			units[b][filled[b]++] = cell;
+		}
+
+		int peerCount = 2 * (size - 1) + (boxSize - 1) * (boxSize - 1);
+		peers = new int[cells][peerCount];
+		for (int cell = 0; cell < cells; cell++) {
+			int n = 0;
+			for (int other = 0; other < cells; other++) {
+				if (other != cell && (rowOf[other] == rowOf[cell]
+						|| colOf[other] == colOf[cell]
+						|| boxOf[other] == boxOf[cell])) {
+					peers[cell][n++] = other;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the geometry for a box size.
+	 *
+	 * @param boxSize small grid size, 3 for a standard 9x9 board.
+	 * @return the shared Geometry.
+	 */
+	public static synchronized Geometry of(int boxSize) {
+		if (boxSize < MIN_BOX || boxSize > MAX_BOX) {
+			throw new IllegalArgumentException("Box size must be between "
+					+ MIN_BOX + " and " + MAX_BOX + ": " + boxSize);
+		}
+		if (CACHE[boxSize] == null) {
+			CACHE[boxSize] = new Geometry(boxSize);
+		}
+		return CACHE[boxSize];
+	}
+
+	/**
+	 * @return small grid size.
+	 */
+	public int boxSize() {
+		return boxSize;
+	}
+
+	/**
+	 * @return large grid size, also the number of symbols.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of squares on the board.
+	 */
+	public int cells() {
+		return cells;
+	}
+
+	/**
+	 * @return number of rows, columns and boxes.
+	 */
+	public int unitCount() {
+		return 3 * size;
+	}
+
+	/**
+	 * @return mask with every symbol free.
+	 */
+	public long all() {
+		return all;
+	}
+}
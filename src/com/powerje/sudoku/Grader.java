@@ -0,0 +1,743 @@
+package com.powerje.sudoku;
+
+/**
+ * Rates a puzzle by the hardest Technique a person needs to solve it.  The
+ * puzzle is solved the way a person would: at each step the easiest
+ * technique that makes progress, by placing a symbol or striking out
+ * candidates, is applied, and the hardest one used decides the Difficulty.
+ * A puzzle that gets stuck needs TRIAL_AND_ERROR.
+ *
+ * Candidates are 9-bit masks per square, bit (val - 1) set iff val is
+ * still possible, so every technique is a few masks, ANDs and bit counts
+ * per unit.  An instance holds its scratch space and must not be shared
+ * between threads.
+ */
+public final class Grader {
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Large grid size. */
+	private static final int SIZE = BitBoard.SIZE;
+
+	/** Every symbol free. */
+	private static final int ALL = BitBoard.ALL;
+
+	/** Offset of the columns in BitBoard.UNIT_CELLS. */
+	private static final int COLUMNS = SIZE;
+
+	/** Offset of the boxes in BitBoard.UNIT_CELLS. */
+	private static final int BOXES = 2 * SIZE;
+
+	/** SEES[a][b] is true iff squares a and b are peers. */
+	private static final boolean[][] SEES = new boolean[CELLS][CELLS];
+
+	static {
+		for (int cell = 0; cell < CELLS; cell++) {
+			for (int peer : BitBoard.PEERS_OF[cell]) {
+				SEES[cell][peer] = true;
+			}
+		}
+	}
+
+	/** Candidates of each square, 0 once it is filled. */
+	private final int[] cand = new int[CELLS];
+
+	/** Value of each square, 0 when empty. */
+	private final int[] value = new int[CELLS];
+
+	/** Number of empty squares left. */
+	private int empty;
+
+	/** true iff the board was found to have no solution. */
+	private boolean broken;
+
+	/** Times each technique was applied by the last grade. */
+	private final int[] uses = new int[Technique.values().length];
+
+	/** Hardest technique the last grade used, null if none. */
+	private Technique hardest;
+
+	/** Scratch space for subsets and fish: squares or lines in play. */
+	private final int[] open = new int[SIZE];
+
+	/** Scratch space for subsets and fish: places of each one in play. */
+	private final int[] places = new int[SIZE];
+
+	/** Scratch space for hidden subsets: symbol of each one in play. */
+	private final int[] symbols = new int[SIZE];
+
+	/** Scratch space for simpleColoring: colour of each square. */
+	private final int[] color = new int[CELLS];
+
+	/** Scratch space for simpleColoring: conjugates of each square. */
+	private final int[][] links = new int[CELLS][3];
+
+	/** Scratch space for simpleColoring: number of links per square. */
+	private final int[] linkCount = new int[CELLS];
+
+	/** Scratch space for simpleColoring: breadth first queue. */
+	private final int[] queue = new int[CELLS];
+
+	/**
+	 * Rates a puzzle.
+	 *
+	 * @param puzzle board to rate, ideally with a unique solution.
+	 * @return difficulty of the puzzle, or null if it was found to have no
+	 * solution.
+	 */
+	public Difficulty grade(Board puzzle) {
+		load(puzzle);
+		while (empty > 0 && !broken) {
+			Technique used = step();
+			if (used == null) {
+				hardest = Technique.TRIAL_AND_ERROR;
+				++uses[hardest.ordinal()];
+				break;
+			}
+			++uses[used.ordinal()];
+			if (hardest == null || harder(used, hardest)) {
+				hardest = used;
+			}
+		}
+		if (broken) {
+			return null;
+		}
+		return hardest == null ? Difficulty.EASY : hardest.difficulty();
+	}
+
+	/**
+	 * @param a a technique.
+	 * @param b another technique.
+	 * @return true iff a belongs to a harder Difficulty than b, or to the
+	 * same one and comes later.
+	 */
+	private static boolean harder(Technique a, Technique b) {
+		int c = a.difficulty().compareTo(b.difficulty());
+		return c > 0 || (c == 0 && a.compareTo(b) > 0);
+	}
+
+	/**
+	 * @return hardest technique the last grade needed, null if none.
+	 */
+	public Technique getHardest() {
+		return hardest;
+	}
+
+	/**
+	 * @param t a technique.
+	 * @return number of times the last grade applied t.
+	 */
+	public int getUses(Technique t) {
+		return uses[t.ordinal()];
+	}
+
+	/**
+	 * Applies the easiest technique that makes progress.
+	 *
+	 * @return the technique applied, or null if none made progress.
+	 */
+	private Technique step() {
+		if (nakedSingles()) {
+			return Technique.NAKED_SINGLE;
+		} else if (hiddenSingles()) {
+			return Technique.HIDDEN_SINGLE;
+		} else if (lockedCandidates()) {
+			return Technique.LOCKED_CANDIDATES;
+		} else if (nakedSubset(2)) {
+			return Technique.NAKED_PAIR;
+		} else if (hiddenSubset(2)) {
+			return Technique.HIDDEN_PAIR;
+		} else if (nakedSubset(3)) {
+			return Technique.NAKED_TRIPLE;
+		} else if (hiddenSubset(3)) {
+			return Technique.HIDDEN_TRIPLE;
+		} else if (fish(2)) {
+			return Technique.X_WING;
+		} else if (xyWing()) {
+			return Technique.XY_WING;
+		} else if (fish(3)) {
+			return Technique.SWORDFISH;
+		} else if (simpleColoring()) {
+			return Technique.SIMPLE_COLORING;
+		}
+		return null;
+	}
+
+	/**
+	 * Resets the grader to a puzzle.
+	 *
+	 * @param puzzle board to rate.
+	 */
+	private void load(Board puzzle) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			cand[cell] = ALL;
+			value[cell] = 0;
+		}
+		for (int i = 0; i < uses.length; i++) {
+			uses[i] = 0;
+		}
+		hardest = null;
+		broken = false;
+		empty = CELLS;
+		for (int cell = 0; cell < CELLS; cell++) {
+			int val = puzzle.get(cell);
+			if (val != 0) {
+				if ((cand[cell] & (1 << (val - 1))) == 0) {
+					broken = true;
+					return;
+				}
+				place(cell, val);
+			}
+		}
+	}
+
+	/**
+	 * Fills a square and strikes its symbol from its peers.
+	 *
+	 * @param cell index of an empty square.
+	 * @param val symbol to place, a candidate of the square.
+	 */
+	private void place(int cell, int val) {
+		int bit = 1 << (val - 1);
+		value[cell] = val;
+		cand[cell] = 0;
+		--empty;
+		for (int peer : BitBoard.PEERS_OF[cell]) {
+			eliminate(peer, bit);
+		}
+	}
+
+	/**
+	 * Strikes candidates from a square.
+	 *
+	 * @param cell index of a square.
+	 * @param bits candidates to strike.
+	 * @return true iff any were there to strike.
+	 */
+	private boolean eliminate(int cell, int bits) {
+		if ((cand[cell] & bits) == 0) {
+			return false;
+		}
+		cand[cell] &= ~bits;
+		if (cand[cell] == 0) {
+			broken = true;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true iff a square with one candidate was filled.
+	 */
+	private boolean nakedSingles() {
+		boolean progress = false;
+		for (int cell = 0; cell < CELLS && !broken; cell++) {
+			int c = cand[cell];
+			if (c != 0 && (c & (c - 1)) == 0) {
+				place(cell, Integer.numberOfTrailingZeros(c) + 1);
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * @return true iff a symbol with one place in a unit was placed.
+	 */
+	private boolean hiddenSingles() {
+		boolean progress = false;
+		for (int[] unit : BitBoard.UNIT_CELLS) {
+			int once = 0;
+			int twice = 0;
+			int placed = 0;
+			for (int cell : unit) {
+				if (value[cell] != 0) {
+					placed |= 1 << (value[cell] - 1);
+				} else {
+					twice |= once & cand[cell];
+					once |= cand[cell];
+				}
+			}
+			if ((once | placed) != ALL) {
+				broken = true;
+				return false;
+			}
+			int hidden = once & ~twice;
+			for (int i = 0; i < SIZE && hidden != 0; i++) {
+				int mine = cand[unit[i]] & hidden;
+				if (mine == 0) {
+					continue;
+				}
+				if ((mine & (mine - 1)) != 0) {
+					// one square is the only home of two symbols
+					broken = true;
+					return false;
+				}
+				hidden &= ~mine;
+				place(unit[i], Integer.numberOfTrailingZeros(mine) + 1);
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Pointing and claiming: a symbol confined to one line within a box can
+	 * go nowhere else in the line, and one confined to one box within a
+	 * line can go nowhere else in the box.
+	 *
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean lockedCandidates() {
+		boolean progress = false;
+		for (int bit = 1; bit < ALL; bit <<= 1) {
+			for (int b = 0; b < SIZE; b++) {
+				int rows = 0;
+				int cols = 0;
+				for (int cell : BitBoard.UNIT_CELLS[BOXES + b]) {
+					if ((cand[cell] & bit) != 0) {
+						rows |= 1 << BitBoard.ROW_OF[cell];
+						cols |= 1 << BitBoard.COL_OF[cell];
+					}
+				}
+				if (rows != 0 && (rows & (rows - 1)) == 0) {
+					progress |= strikeOutside(
+							Integer.numberOfTrailingZeros(rows), b, bit);
+				}
+				if (cols != 0 && (cols & (cols - 1)) == 0) {
+					progress |= strikeOutside(COLUMNS
+							+ Integer.numberOfTrailingZeros(cols), b, bit);
+				}
+			}
+			for (int line = 0; line < BOXES; line++) {
+				int boxes = 0;
+				for (int cell : BitBoard.UNIT_CELLS[line]) {
+					if ((cand[cell] & bit) != 0) {
+						boxes |= 1 << BitBoard.BOX_OF[cell];
+					}
+				}
+				if (boxes != 0 && (boxes & (boxes - 1)) == 0) {
+					int b = Integer.numberOfTrailingZeros(boxes);
+					for (int cell : BitBoard.UNIT_CELLS[BOXES + b]) {
+						if (!inLine(cell, line)) {
+							progress |= eliminate(cell, bit);
+						}
+					}
+				}
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Strikes a symbol from the squares of a line outside a box.
+	 *
+	 * @param line index of a row or column in BitBoard.UNIT_CELLS.
+	 * @param box index of a box.
+	 * @param bit mask bit of the symbol.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean strikeOutside(int line, int box, int bit) {
+		boolean progress = false;
+		for (int cell : BitBoard.UNIT_CELLS[line]) {
+			if (BitBoard.BOX_OF[cell] != box) {
+				progress |= eliminate(cell, bit);
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * @param cell index of a square.
+	 * @param line index of a row or column in BitBoard.UNIT_CELLS.
+	 * @return true iff the square is on the line.
+	 */
+	private static boolean inLine(int cell, int line) {
+		return line < COLUMNS ? BitBoard.ROW_OF[cell] == line
+				: BitBoard.COL_OF[cell] == line - COLUMNS;
+	}
+
+	/**
+	 * Naked pairs and triples: n squares of a unit with only n candidates
+	 * between them take those symbols from the rest of the unit.
+	 *
+	 * @param n size of the subset, 2 or 3.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean nakedSubset(int n) {
+		boolean progress = false;
+		for (int[] unit : BitBoard.UNIT_CELLS) {
+			int k = 0;
+			for (int cell : unit) {
+				int count = Integer.bitCount(cand[cell]);
+				if (count >= 2 && count <= n) {
+					open[k++] = cell;
+				}
+			}
+			for (int i = 0; i < k; i++) {
+				for (int j = i + 1; j < k; j++) {
+					int pair = cand[open[i]] | cand[open[j]];
+					if (n == 2) {
+						if (Integer.bitCount(pair) == 2) {
+							progress |= strikeSubset(unit, pair);
+						}
+						continue;
+					}
+					for (int l = j + 1; l < k; l++) {
+						int triple = pair | cand[open[l]];
+						if (Integer.bitCount(triple) == 3) {
+							progress |= strikeSubset(unit, triple);
+						}
+					}
+				}
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Strikes the symbols of a naked subset from the other squares of its
+	 * unit, those whose candidates are not within the subset.
+	 *
+	 * @param unit squares of the unit.
+	 * @param symbols candidates of the subset.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean strikeSubset(int[] unit, int symbols) {
+		boolean progress = false;
+		for (int cell : unit) {
+			if (cand[cell] != 0 && (cand[cell] & ~symbols) != 0) {
+				progress |= eliminate(cell, symbols);
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Hidden pairs and triples: n symbols with only n places between them
+	 * in a unit take those squares, which lose every other candidate.
+	 *
+	 * @param n size of the subset, 2 or 3.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean hiddenSubset(int n) {
+		boolean progress = false;
+		for (int[] unit : BitBoard.UNIT_CELLS) {
+			int k = 0;
+			for (int d = 0; d < SIZE; d++) {
+				int where = 0;
+				for (int i = 0; i < SIZE; i++) {
+					if ((cand[unit[i]] & (1 << d)) != 0) {
+						where |= 1 << i;
+					}
+				}
+				int count = Integer.bitCount(where);
+				if (count >= 2 && count <= n) {
+					places[k] = where;
+					symbols[k++] = 1 << d;
+				}
+			}
+			for (int i = 0; i < k; i++) {
+				for (int j = i + 1; j < k; j++) {
+					int pair = places[i] | places[j];
+					if (n == 2) {
+						if (Integer.bitCount(pair) == 2) {
+							progress |= keepOnly(unit, pair,
+									symbols[i] | symbols[j]);
+						}
+						continue;
+					}
+					for (int l = j + 1; l < k; l++) {
+						int triple = pair | places[l];
+						if (Integer.bitCount(triple) == 3) {
+							progress |= keepOnly(unit, triple,
+									symbols[i] | symbols[j] | symbols[l]);
+						}
+					}
+				}
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Strikes every candidate but the given symbols from some squares.
+	 *
+	 * @param unit squares of the unit.
+	 * @param where mask of positions within the unit.
+	 * @param symbols candidates to keep.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean keepOnly(int[] unit, int where, int symbols) {
+		boolean progress = false;
+		for (int i = 0; i < SIZE; i++) {
+			if ((where & (1 << i)) != 0) {
+				progress |= eliminate(unit[i], ~symbols & ALL);
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * X-Wing (n = 2) and Swordfish (n = 3): if a symbol's places in n rows
+	 * lie within n columns, it goes nowhere else in those columns, and the
+	 * same with rows and columns swapped.
+	 *
+	 * @param n number of lines in the fish.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean fish(int n) {
+		boolean progress = false;
+		int[] lines = open;
+		int[] where = places;
+		for (int bit = 1; bit < ALL; bit <<= 1) {
+			for (int base = 0; base <= COLUMNS; base += COLUMNS) {
+				int cover = COLUMNS - base;
+				int k = 0;
+				for (int line = 0; line < SIZE; line++) {
+					int found = 0;
+					int[] unit = BitBoard.UNIT_CELLS[base + line];
+					for (int i = 0; i < SIZE; i++) {
+						if ((cand[unit[i]] & bit) != 0) {
+							found |= 1 << i;
+						}
+					}
+					int count = Integer.bitCount(found);
+					if (count >= 2 && count <= n) {
+						lines[k] = 1 << line;
+						where[k++] = found;
+					}
+				}
+				for (int i = 0; i < k; i++) {
+					for (int j = i + 1; j < k; j++) {
+						if (n == 2) {
+							if (Integer.bitCount(where[i] | where[j]) == 2) {
+								progress |= strikeFish(cover,
+										where[i] | where[j],
+										lines[i] | lines[j], bit);
+							}
+							continue;
+						}
+						for (int l = j + 1; l < k; l++) {
+							int covered = where[i] | where[j] | where[l];
+							if (Integer.bitCount(covered) == 3) {
+								progress |= strikeFish(cover, covered,
+										lines[i] | lines[j] | lines[l], bit);
+							}
+						}
+					}
+				}
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Strikes a symbol from the cover lines of a fish, outside its base
+	 * lines.
+	 *
+	 * @param cover offset of the cover lines in BitBoard.UNIT_CELLS.
+	 * @param covered mask of the cover lines.
+	 * @param baseLines mask of the base lines.
+	 * @param bit mask bit of the symbol.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean strikeFish(int cover, int covered, int baseLines,
+			int bit) {
+		boolean progress = false;
+		for (int line = 0; line < SIZE; line++) {
+			if ((covered & (1 << line)) == 0) {
+				continue;
+			}
+			int[] unit = BitBoard.UNIT_CELLS[cover + line];
+			for (int i = 0; i < SIZE; i++) {
+				if ((baseLines & (1 << i)) == 0) {
+					progress |= eliminate(unit[i], bit);
+				}
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * XY-Wing: a pivot with candidates {x, y} and two peers with {x, z} and
+	 * {y, z}; whichever the pivot is, one of the peers is z, so z goes from
+	 * every square that sees both peers.
+	 *
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean xyWing() {
+		boolean progress = false;
+		for (int pivot = 0; pivot < CELLS; pivot++) {
+			int p = cand[pivot];
+			if (Integer.bitCount(p) != 2) {
+				continue;
+			}
+			for (int a : BitBoard.PEERS_OF[pivot]) {
+				int ca = cand[a];
+				if (Integer.bitCount(ca) != 2
+						|| Integer.bitCount(ca & p) != 1) {
+					continue;
+				}
+				int z = ca & ~p;
+				int wanted = (p & ~ca) | z;
+				for (int b : BitBoard.PEERS_OF[pivot]) {
+					if (cand[b] != wanted || b == a) {
+						continue;
+					}
+					for (int cell = 0; cell < CELLS; cell++) {
+						if (cell != a && cell != b && SEES[cell][a]
+								&& SEES[cell][b]) {
+							progress |= eliminate(cell, z);
+						}
+					}
+					if (progress) {
+						return true;
+					}
+				}
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Simple colouring: the squares of a symbol joined by conjugate pairs,
+	 * the only two places for it in some unit, alternate between true and
+	 * false.  If two squares of one colour see each other, that colour is
+	 * false; a square that sees both colours cannot hold the symbol.
+	 *
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean simpleColoring() {
+		for (int bit = 1; bit < ALL; bit <<= 1) {
+			for (int cell = 0; cell < CELLS; cell++) {
+				linkCount[cell] = 0;
+				color[cell] = 0;
+			}
+			for (int[] unit : BitBoard.UNIT_CELLS) {
+				int first = -1;
+				int second = -1;
+				int count = 0;
+				for (int cell : unit) {
+					if ((cand[cell] & bit) != 0) {
+						if (count == 0) {
+							first = cell;
+						} else {
+							second = cell;
+						}
+						++count;
+					}
+				}
+				if (count == 2 && !linked(first, second)) {
+					links[first][linkCount[first]++] = second;
+					links[second][linkCount[second]++] = first;
+				}
+			}
+
+			int chain = 0;
+			for (int start = 0; start < CELLS; start++) {
+				if (linkCount[start] == 0 || color[start] != 0) {
+					continue;
+				}
+				// each chain gets two colours of its own
+				++chain;
+				int on = 2 * chain - 1;
+				int size = colorChain(start, on);
+				if (colorChainProgress(size, on, bit)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param a index of a square.
+	 * @param b index of a square.
+	 * @return true iff a already has b as a conjugate.
+	 */
+	private boolean linked(int a, int b) {
+		for (int i = 0; i < linkCount[a]; i++) {
+			if (links[a][i] == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Colours a chain breadth first, leaving its squares in queue.
+	 *
+	 * @param start index of a square on the chain.
+	 * @param on first colour of the chain; the other is on + 1.
+	 * @return number of squares on the chain.
+	 */
+	private int colorChain(int start, int on) {
+		int head = 0;
+		int tail = 0;
+		color[start] = on;
+		queue[tail++] = start;
+		while (head < tail) {
+			int cell = queue[head++];
+			int other = color[cell] == on ? on + 1 : on;
+			for (int i = 0; i < linkCount[cell]; i++) {
+				int next = links[cell][i];
+				if (color[next] == 0) {
+					color[next] = other;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Applies the colour wrap and colour trap rules to the chain in queue.
+	 *
+	 * @param size number of squares on the chain.
+	 * @param on first colour of the chain; the other is on + 1.
+	 * @param bit mask bit of the symbol.
+	 * @return true iff any candidate was struck.
+	 */
+	private boolean colorChainProgress(int size, int on, int bit) {
+		// wrap: two squares of one colour see each other
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				int a = queue[i];
+				int b = queue[j];
+				if (color[a] == color[b] && SEES[a][b]) {
+					boolean progress = false;
+					for (int k = 0; k < size; k++) {
+						if (color[queue[k]] == color[a]) {
+							progress |= eliminate(queue[k], bit);
+						}
+					}
+					return progress;
+				}
+			}
+		}
+
+		// trap: a square off the chain sees both colours
+		boolean progress = false;
+		for (int cell = 0; cell < CELLS; cell++) {
+			if ((cand[cell] & bit) == 0 || color[cell] == on
+					|| color[cell] == on + 1) {
+				continue;
+			}
+			boolean seesOn = false;
+			boolean seesOff = false;
+			for (int i = 0; i < size; i++) {
+				if (SEES[cell][queue[i]]) {
+					if (color[queue[i]] == on) {
+						seesOn = true;
+					} else {
+						seesOff = true;
+					}
+				}
+			}
+			if (seesOn && seesOff) {
+				progress |= eliminate(cell, bit);
+			}
+		}
+		return progress;
+	}
+}
@@ -0,0 +1,521 @@
+package com.powerje.sudoku;
+
+import java.util.Random;
+
+/**
+ * Most-constrained-square search with singles propagation that runs off an
+ * explicit stack instead of recursion.  The stack, the propagation trail
+ * and the board masks are primitive arrays allocated once with the solver,
+ * so solving does not touch the heap after the first call and does not
+ * depend on the depth of the Java call stack.
+ *
+ * A solve can be bounded by a SolveBudget and cancelled from another
+ * thread through a CancellationToken; the SolveResult then says whether
+ * the board was solved, proved unsolvable, or given up on.
+ *
+ * A SearchListener can be set to follow the search step by step.
+ * Candidates can be tried in random order, which Generator uses to build
+ * random complete grids.
+ *
+ * All state lives in the instance: give each thread its own solver and
+ * reuse it for as many boards as needed.
+ */
+public final class IterativeSolver implements Solver {
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Returned by propagateAndPick when the board is full. */
+	static final int SOLVED = -1;
+
+	/** Returned by propagateAndPick when the board cannot be solved. */
+	static final int UNSOLVABLE = -2;
+
+	/** The clock is read once every CLOCK_MASK + 1 nodes. */
+	private static final long CLOCK_MASK = 0xff;
+
+	/** Deepest the search can go: one branch per empty square. */
+	private static final int MAX_DEPTH = CELLS + 1;
+
+	/** Masks of the board being solved. */
+	private final BitBoard masks = new BitBoard();
+
+	/** Square branched on at each depth. */
+	private final int[] nodeCell = new int[MAX_DEPTH];
+
+	/** Symbols still to try at each depth. */
+	private final int[] nodeOptions = new int[MAX_DEPTH];
+
+	/** Trail height on entry to each depth. */
+	private final int[] nodeMark = new int[MAX_DEPTH];
+
+	/** Squares filled by propagation, in order, so they can be undone. */
+	private final int[] trail = new int[CELLS];
+
+	/** Number of squares on the trail. */
+	private int trailTop;
+
+	/** Scratch space for Propagator.collect. */
+	private final int[] singles = new int[Propagator.MAX_SINGLES];
+
+	/** Number of empty squares left. */
+	private int empty;
+
+	/** First two solutions found by the last search. */
+	private final int[][] solutions = new int[2][CELLS];
+
+	/** Solutions past the first two, for the listener. */
+	private final int[] spare = new int[CELLS];
+
+	/** Token the current search gives up on, or null. */
+	private CancellationToken token;
+
+	/** Nodes the current search may visit. */
+	private long nodeLimit = Long.MAX_VALUE;
+
+	/** true iff the current search has a deadline. */
+	private boolean timed;
+
+	/** System.nanoTime() at which the current search gives up. */
+	private long deadline;
+
+	/** Nodes visited by the last search. */
+	private long nodes;
+
+	/** Times the last search backed up a level. */
+	private long backtracks;
+
+	/** Deepest level the last search reached. */
+	private int maxDepth;
+
+	/** Squares filled by propagation during the last search. */
+	private long propagated;
+
+	/** Squares of the first solution filled by propagation. */
+	private int solutionFills;
+
+	/** Listener told about every step, or null. */
+	private SearchListener listener;
+
+	/** Source of the candidate order, null to try symbols in order. */
+	private Random random;
+
+	/** Why the last search stopped early, null if it ran to the end. */
+	private SolveResult.Status interruption;
+
+	/**
+	 * @return search nodes visited by the last solve or count.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return squares of the first solution the last solve or count found
+	 * that propagation filled rather than a guess, 0 if it found none.
+	 */
+	public int getSolutionFills() {
+		return solutionFills;
+	}
+
+	/**
+	 * Makes the search try candidates in random order.
+	 *
+	 * @param r source of the order, or null to try symbols in order.
+	 */
+	public void setRandom(Random r) {
+		random = r;
+	}
+
+	/**
+	 * Sets the listener told about every step of later searches.
+	 *
+	 * @param listener the listener, or null for none.
+	 */
+	public void setSearchListener(SearchListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return times the last solve or count backed up a level.
+	 */
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	/**
+	 * @return deepest level of guesses the last solve or count reached.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return squares the last solve or count filled by propagation,
+	 * counting a square again each time it is refilled after a backtrack.
+	 */
+	public long getPropagated() {
+		return propagated;
+	}
+
+	/**
+	 * Loads a board, fills in its singles and picks the square to branch on
+	 * without searching any further.
+	 *
+	 * @param cells row-major board, overwritten with the singles filled in.
+	 * @return cell index of the most constrained square, SOLVED if the board
+	 * is now full, or UNSOLVABLE.
+	 */
+	int propagateAndPick(int[] cells) {
+		if (!load(cells) || !propagate()) {
+			return UNSOLVABLE;
+		}
+		for (int cell = 0; cell < CELLS; cell++) {
+			cells[cell] = masks.get(cell);
+		}
+		return empty == 0 ? SOLVED : mostConstrained();
+	}
+
+	/**
+	 * Returns the legal symbols of a square of the board last loaded.
+	 *
+	 * @param cell index of the square.
+	 * @return candidate mask, bit (val - 1) set iff val is legal.
+	 */
+	int candidates(int cell) {
+		return masks.candidates(cell);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean solve(int[] cells) {
+		if (countSolutions(cells, 1) == 0) {
+			return false;
+		}
+		copySolution(0, cells);
+		return true;
+	}
+
+	/**
+	 * Solves a board within a budget.
+	 *
+	 * @param cells row-major board, 0 for empty squares, left unchanged.
+	 * @param budget time and node limits for this solve.
+	 * @param cancel token that stops the solve when raised, or null.
+	 * @return the outcome, with a new array holding the solution if solved.
+	 */
+	public SolveResult solve(int[] cells, SolveBudget budget,
+			CancellationToken cancel) {
+		long start = System.nanoTime();
+		int found = boundedSearch(cells, 1, budget, cancel, start);
+		long elapsed = System.nanoTime() - start;
+
+		if (found > 0) {
+			return new SolveResult(SolveResult.Status.SOLVED,
+					solutions[0].clone(), nodes, elapsed);
+		} else if (interruption != null) {
+			return new SolveResult(interruption, null, nodes, elapsed);
+		}
+		return new SolveResult(SolveResult.Status.UNSOLVABLE, null, nodes,
+				elapsed);
+	}
+
+	/**
+	 * Counts the solutions of a board within a budget.  If the budget runs
+	 * out first, getInterruption() says so and the count is only a lower
+	 * bound.
+	 *
+	 * @param cells row-major board, 0 for empty squares, left unchanged.
+	 * @param limit number of solutions after which to stop, at least 1.
+	 * @param budget time and node limits for this count.
+	 * @return number of solutions found, at most limit.
+	 */
+	public int countSolutions(int[] cells, int limit, SolveBudget budget) {
+		return boundedSearch(cells, limit, budget, null, System.nanoTime());
+	}
+
+	/**
+	 * @return why the last solve or count stopped early, or null if it ran
+	 * to the end.
+	 */
+	public SolveResult.Status getInterruption() {
+		return interruption;
+	}
+
+	/**
+	 * Runs the search under a budget and token, clearing them afterwards.
+	 *
+	 * @param cells row-major board, 0 for empty squares, left unchanged.
+	 * @param limit number of solutions after which to stop, at least 1.
+	 * @param budget time and node limits for this search.
+	 * @param cancel token that stops the search when raised, or null.
+	 * @param start System.nanoTime() the budget counts from.
+	 * @return number of solutions found, at most limit.
+	 */
+	private int boundedSearch(int[] cells, int limit, SolveBudget budget,
+			CancellationToken cancel, long start) {
+		token = cancel;
+		nodeLimit = budget.getNodes();
+		timed = budget.hasTimeLimit();
+		deadline = start + budget.getNanos();
+		try {
+			return search(cells, limit);
+		} finally {
+			token = null;
+			nodeLimit = Long.MAX_VALUE;
+			timed = false;
+		}
+	}
+
+	/**
+	 * Counts the solutions of a board, stopping as soon as limit of them
+	 * have been found.  With a limit of 2 this certifies that a puzzle has
+	 * a unique solution at little more than the cost of solving it.
+	 *
+	 * @param cells row-major board, 0 for empty squares, left unchanged.
+	 * @param limit number of solutions after which to stop, at least 1.
+	 * @return number of solutions found, at most limit.
+	 */
+	public int countSolutions(int[] cells, int limit) {
+		return search(cells, limit);
+	}
+
+	/**
+	 * Runs the search, stopping after limit solutions or when the budget
+	 * or token of the current solve says so.
+	 *
+	 * @param cells row-major board, 0 for empty squares, left unchanged.
+	 * @param limit number of solutions after which to stop, at least 1.
+	 * @return number of solutions found, at most limit.
+	 */
+	private int search(int[] cells, int limit) {
+		nodes = 0;
+		backtracks = 0;
+		maxDepth = 0;
+		propagated = 0;
+		solutionFills = 0;
+		interruption = null;
+		if (!load(cells)) {
+			return 0;
+		}
+
+		int found = 0;
+		int depth = 0;
+		boolean descending = true;
+		while (true) {
+			if (descending) {
+				if (outOfBudget()) {
+					return found;
+				}
+				++nodes;
+				nodeMark[depth] = trailTop;
+				nodeOptions[depth] = 0;
+				if (propagate()) {
+					if (empty == 0) {
+						if (found == 0) {
+							// every square filled on the way and not
+							// guessed is on the trail
+							solutionFills = trailTop;
+						}
+						if (found < solutions.length) {
+							for (int cell = 0; cell < CELLS; cell++) {
+								solutions[found][cell] = masks.get(cell);
+							}
+						}
+						if (listener != null) {
+							reportSolution(found);
+						}
+						if (++found >= limit) {
+							return found;
+						}
+					} else {
+						int best = mostConstrained();
+						nodeCell[depth] = best;
+						nodeOptions[depth] = masks.candidates(best);
+					}
+				}
+			}
+
+			int options = nodeOptions[depth];
+			if (options == 0) {
+				// nothing left to try here, back up a level
+				undo(nodeMark[depth]);
+				if (depth == 0) {
+					return found;
+				}
+				--depth;
+				++backtracks;
+				masks.remove(nodeCell[depth]);
+				if (listener != null) {
+					listener.onBacktrack(nodeCell[depth], depth);
+				}
+				++empty;
+				descending = false;
+				continue;
+			}
+
+			int bit = pick(options);
+			int val = Integer.numberOfTrailingZeros(bit) + 1;
+			nodeOptions[depth] = options ^ bit;
+			masks.place(nodeCell[depth], val);
+			--empty;
+			if (listener != null) {
+				listener.onPlace(nodeCell[depth], val, depth + 1);
+			}
+			if (++depth > maxDepth) {
+				maxDepth = depth;
+			}
+			descending = true;
+		}
+	}
+
+	/**
+	 * Picks the next candidate to try.
+	 *
+	 * @param options candidates not yet tried, not 0.
+	 * @return the bit of the candidate to try.
+	 */
+	private int pick(int options) {
+		if (random == null) {
+			return options & -options;
+		}
+		int skip = random.nextInt(Integer.bitCount(options));
+		for (int i = 0; i < skip; i++) {
+			options &= options - 1;
+		}
+		return options & -options;
+	}
+
+	/**
+	 * Hands the board just filled to the listener.
+	 *
+	 * @param found number of solutions found before this one.
+	 */
+	private void reportSolution(int found) {
+		int[] cells = spare;
+		if (found < solutions.length) {
+			cells = solutions[found];
+		} else {
+			for (int cell = 0; cell < CELLS; cell++) {
+				spare[cell] = masks.get(cell);
+			}
+		}
+		listener.onSolution(cells);
+	}
+
+	/**
+	 * Copies out one of the solutions found by the last countSolutions.
+	 * The first two solutions are kept.
+	 *
+	 * @param n 0 for the first solution found, 1 for the second.
+	 * @param out receives the row-major solved board.
+	 */
+	public void copySolution(int n, int[] out) {
+		System.arraycopy(solutions[n], 0, out, 0, CELLS);
+	}
+
+	/**
+	 * Checks the token and budget of the current search, recording why it
+	 * has to stop.
+	 *
+	 * @return true iff the search has to stop now.
+	 */
+	private boolean outOfBudget() {
+		if (token != null && token.isCancelled()) {
+			interruption = SolveResult.Status.CANCELLED;
+		} else if (nodes >= nodeLimit || (timed && (nodes & CLOCK_MASK) == 0
+				&& System.nanoTime() - deadline >= 0)) {
+			interruption = SolveResult.Status.BUDGET_EXHAUSTED;
+		}
+		return interruption != null;
+	}
+
+	/**
+	 * Resets the masks to the given board.
+	 *
+	 * @param cells row-major board, 0 for empty squares.
+	 * @return false iff two clues clash.
+	 */
+	private boolean load(int[] cells) {
+		masks.clear();
+		trailTop = 0;
+		empty = 0;
+		for (int cell = 0; cell < CELLS; cell++) {
+			int val = cells[cell];
+			if (val == 0) {
+				++empty;
+			} else if (masks.legal(cell, val)) {
+				masks.place(cell, val);
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the empty square with the fewest legal symbols.
+	 *
+	 * @requires at least one square is empty.
+	 * @return cell index of the most constrained square.
+	 */
+	private int mostConstrained() {
+		int best = -1;
+		int fewest = Integer.MAX_VALUE;
+		for (int cell = 0; cell < CELLS && fewest > 2; cell++) {
+			if (masks.get(cell) == 0) {
+				int n = Integer.bitCount(masks.candidates(cell));
+				if (n < fewest) {
+					best = cell;
+					fewest = n;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Fills in naked and hidden singles until there are none left,
+	 * recording each one on the trail.
+	 *
+	 * @return false iff the board was found to be unsolvable.
+	 */
+	private boolean propagate() {
+		int n;
+		while ((n = Propagator.collect(masks, singles)) > 0) {
+			for (int i = 0; i < n; i++) {
+				int cell = Propagator.cellOf(singles[i]);
+				int val = Propagator.valueOf(singles[i]);
+				if (masks.get(cell) != 0) {
+					if (masks.get(cell) != val) {
+						return false;
+					}
+					continue;
+				}
+				if (!masks.legal(cell, val)) {
+					return false;
+				}
+				masks.place(cell, val);
+				--empty;
+				++propagated;
+				trail[trailTop++] = cell;
+				if (listener != null) {
+					listener.onPropagate(cell, val);
+				}
+			}
+		}
+		return n == 0;
+	}
+
+	/**
+	 * Empties the squares propagation filled since the trail was at mark.
+	 *
+	 * @param mark trail height to go back to.
+	 */
+	private void undo(int mark) {
+		while (trailTop > mark) {
+			masks.remove(trail[--trailTop]);
+			++empty;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package com.powerje.sudoku;
+
+/**
+ * Computes candidates and propagates singles for many boards at once.
+ * Boards are stored one per lane in structure-of-arrays order, value of
+ * square cell on board lane at [cell * lanes + lane], so every pass is a
+ * loop over the squares with a tight, branch-light inner loop over the
+ * lanes.  That is the shape the JIT turns into SIMD code where the
+ * hardware has it, and a plain fast loop where it does not.
+ *
+ * Meant for bulk validation: load a batch of boards, propagate(), drop the
+ * ones that failed() and search only what is left.  An instance holds all
+ * of its scratch space and must not be shared between threads.
+ */
+public final class LanePropagator {
+	/** Large grid size. */
+	private static final int SIZE = BitBoard.SIZE;
+
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Mask with every symbol free. */
+	private static final int ALL = BitBoard.ALL;
+
+	/** Number of boards held. */
+	private final int lanes;
+
+	/** Values of every board, 0 for empty. */
+	private final int[] grid;
+
+	/** Candidates of every square of every board, 0 for filled squares. */
+	private final int[] cand;
+
+	/** Symbols used in each row of every board. */
+	private final int[] rowUsed;
+
+	/** Symbols used in each column of every board. */
+	private final int[] colUsed;
+
+	/** Symbols used in each box of every board. */
+	private final int[] boxUsed;
+
+	/** Per board, nonzero once it is known to be unsolvable. */
+	private final int[] failed;
+
+	/** Squares filled on each board by the last pass. */
+	private final int[] filled;
+
+	/**
+	 * Constructor for LanePropagator.
+	 *
+	 * @param lanes number of boards to hold.
+	 */
+	public LanePropagator(int lanes) {
+		if (lanes < 1) {
+			throw new IllegalArgumentException("lanes < 1");
+		}
+		this.lanes = lanes;
+		grid = new int[CELLS * lanes];
+		cand = new int[CELLS * lanes];
+		rowUsed = new int[SIZE * lanes];
+		colUsed = new int[SIZE * lanes];
+		boxUsed = new int[SIZE * lanes];
+		failed = new int[lanes];
+		filled = new int[lanes];
+	}
+
+	/**
+	 * @return number of boards held.
+	 */
+	public int lanes() {
+		return lanes;
+	}
+
+	/**
+	 * Copies a board into a lane.
+	 *
+	 * @param lane lane to fill.
+	 * @param cells row-major board, 0 for empty squares.
+	 */
+	public void load(int lane, int[] cells) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			grid[cell * lanes + lane] = cells[cell];
+		}
+		failed[lane] = 0;
+	}
+
+	/**
+	 * Empties a lane, for batches smaller than lanes().
+	 *
+	 * @param lane lane to empty.
+	 */
+	public void clear(int lane) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			grid[cell * lanes + lane] = 0;
+		}
+		failed[lane] = 0;
+	}
+
+	/**
+	 * Copies a lane back out.
+	 *
+	 * @param lane lane to read.
+	 * @param cells receives the row-major board.
+	 */
+	public void store(int lane, int[] cells) {
+		for (int cell = 0; cell < CELLS; cell++) {
+			cells[cell] = grid[cell * lanes + lane];
+		}
+	}
+
+	/**
+	 * @param lane lane to check.
+	 * @return true iff the board in lane is known to be unsolvable.
+	 */
+	public boolean failed(int lane) {
+		return failed[lane] != 0;
+	}
+
+	/**
+	 * @param lane lane of the board.
+	 * @param cell index of the square.
+	 * @return candidate mask of the square as of the last pass, 0 if filled.
+	 */
+	public int candidates(int lane, int cell) {
+		return cand[cell * lanes + lane];
+	}
+
+	/**
+	 * Fills naked and hidden singles on every board until none are left
+	 * on any of them.  Boards that turn out unsolvable are marked failed
+	 * and left alone from then on.
+	 */
+	public void propagate() {
+		boolean changed = true;
+		while (changed) {
+			computeCandidates();
+			changed = fillNakedSingles();
+			computeCandidates();
+			changed |= fillHiddenSingles();
+		}
+	}
+
+	/**
+	 * Rebuilds the unit masks and candidate grid of every board in two
+	 * passes, flagging boards with a repeated symbol or an empty square
+	 * that has nowhere to go.
+	 */
+	public void computeCandidates() {
+		for (int i = 0; i < rowUsed.length; i++) {
+			rowUsed[i] = 0;
+			colUsed[i] = 0;
+			boxUsed[i] = 0;
+		}
+
+		for (int cell = 0; cell < CELLS; cell++) {
+			int g = cell * lanes;
+			int r = BitBoard.ROW_OF[cell] * lanes;
+			int c = BitBoard.COL_OF[cell] * lanes;
+			int b = BitBoard.BOX_OF[cell] * lanes;
+			for (int lane = 0; lane < lanes; lane++) {
+				// (1 << 0) >>> 1 == 0, so empty squares add nothing
+				int bit = (1 << grid[g + lane]) >>> 1;
+				failed[lane] |= (rowUsed[r + lane] | colUsed[c + lane]
+						| boxUsed[b + lane]) & bit;
+				rowUsed[r + lane] |= bit;
+				colUsed[c + lane] |= bit;
+				boxUsed[b + lane] |= bit;
+			}
+		}
+
+		for (int cell = 0; cell < CELLS; cell++) {
+			int g = cell * lanes;
+			int r = BitBoard.ROW_OF[cell] * lanes;
+			int c = BitBoard.COL_OF[cell] * lanes;
+			int b = BitBoard.BOX_OF[cell] * lanes;
+			for (int lane = 0; lane < lanes; lane++) {
+				int free = ~(rowUsed[r + lane] | colUsed[c + lane]
+						| boxUsed[b + lane]) & ALL;
+				// all ones for an empty square, all zeros for a filled one
+				int emptyMask = (grid[g + lane] - 1) >> 31;
+				cand[g + lane] = free & emptyMask;
+				failed[lane] |= emptyMask & (free == 0 ? 1 : 0);
+			}
+		}
+	}
+
+	/**
+	 * Fills every empty square that has exactly one candidate.
+	 *
+	 * @return true iff some board changed.
+	 */
+	private boolean fillNakedSingles() {
+		for (int lane = 0; lane < lanes; lane++) {
+			filled[lane] = 0;
+		}
+		for (int cell = 0; cell < CELLS; cell++) {
+			int g = cell * lanes;
+			for (int lane = 0; lane < lanes; lane++) {
+				int m = cand[g + lane];
+				if (m != 0 && (m & (m - 1)) == 0 && failed[lane] == 0) {
+					grid[g + lane] = Integer.numberOfTrailingZeros(m) + 1;
+					++filled[lane];
+				}
+			}
+		}
+		return anyFilled();
+	}
+
+	/**
+	 * Fills every square that is the only home of a symbol in one of its
+	 * rows, columns or boxes.
+	 *
+	 * @return true iff some board changed.
+	 */
+	private boolean fillHiddenSingles() {
+		for (int lane = 0; lane < lanes; lane++) {
+			filled[lane] = 0;
+		}
+		for (int u = 0; u < BitBoard.UNITS; u++) {
+			int[] unit = BitBoard.UNIT_CELLS[u];
+			for (int lane = 0; lane < lanes; lane++) {
+				if (failed[lane] != 0) {
+					continue;
+				}
+				int once = 0;
+				int twice = 0;
+				int placed = 0;
+				for (int i = 0; i < SIZE; i++) {
+					int g = unit[i] * lanes + lane;
+					int m = cand[g];
+					twice |= once & m;
+					once |= m;
+					placed |= (1 << grid[g]) >>> 1;
+				}
+				if ((once | placed) != ALL) {
+					failed[lane] = 1;
+					continue;
+				}
+				int hidden = once & ~twice;
+				for (int i = 0; i < SIZE && hidden != 0; i++) {
+					int g = unit[i] * lanes + lane;
+					int mine = cand[g] & hidden;
+					if (mine != 0 && grid[g] == 0) {
+						if ((mine & (mine - 1)) != 0) {
+							failed[lane] = 1;
+							break;
+						}
+						hidden &= ~mine;
+						grid[g] = Integer.numberOfTrailingZeros(mine) + 1;
+						++filled[lane];
+					}
+				}
+			}
+		}
+		return anyFilled();
+	}
+
+	/**
+	 * @return true iff the last pass filled a square on some live board.
+	 */
+	private boolean anyFilled() {
+		for (int lane = 0; lane < lanes; lane++) {
+			if (filled[lane] != 0 && failed[lane] == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Computes the candidates of every square of one board in two passes,
+	 * without looking at any square more than once per pass.
+	 *
+	 * @param cells row-major board, 0 for empty squares.
+	 * @param out receives the candidate mask of each square, 0 if filled.
+	 */
+	public static void candidates(int[] cells, int[] out) {
+		int[] used = new int[3 * SIZE];
+		for (int cell = 0; cell < CELLS; cell++) {
+			int bit = (1 << cells[cell]) >>> 1;
+			used[BitBoard.ROW_OF[cell]] |= bit;
+			used[SIZE + BitBoard.COL_OF[cell]] |= bit;
+			used[2 * SIZE + BitBoard.BOX_OF[cell]] |= bit;
+		}
+		for (int cell = 0; cell < CELLS; cell++) {
+			int free = ~(used[BitBoard.ROW_OF[cell]]
+					| used[SIZE + BitBoard.COL_OF[cell]]
+					| used[2 * SIZE + BitBoard.BOX_OF[cell]]) & ALL;
+			out[cell] = free & ((cells[cell] - 1) >> 31);
+		}
+	}
+}
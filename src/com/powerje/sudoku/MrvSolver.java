@@ -0,0 +1,250 @@
+package com.powerje.sudoku;
+
+/**
+ * Depth first search that always branches on the most constrained square,
+ * the empty square with the fewest legal symbols, and backs up as soon as
+ * any empty square is left with none.
+ *
+ * The number of candidates of every empty square is kept up to date as
+ * symbols are placed and removed: only the 20 peers of the changed square
+ * can be affected, so the board is never rescanned to count candidates.
+ * With propagation on, naked and hidden singles are filled in at every
+ * node before branching, and the solver reports how many squares of the
+ * solution came from propagation and how many from branching.
+ *
+ * An instance can be reused but must not be shared between threads.
+ */
+public final class MrvSolver implements Solver {
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Masks of the board being solved. */
+	private final BitBoard masks = new BitBoard();
+
+	/** Number of legal symbols left for each empty square. */
+	private final int[] count = new int[CELLS];
+
+	/** Number of empty squares left. */
+	private int empty;
+
+	/** true iff singles are filled in before every branch. */
+	private final boolean propagate;
+
+	/** Squares filled by propagation, in order, so they can be undone. */
+	private final int[] trail = new int[CELLS];
+
+	/** Number of squares on the trail. */
+	private int trailTop;
+
+	/** Scratch space for Propagator.collect. */
+	private final int[] singles = new int[Propagator.MAX_SINGLES];
+
+	/** Squares currently filled by propagation. */
+	private int propagated;
+
+	/** Squares currently filled by branching. */
+	private int searched;
+
+	/**
+	 * Constructor for MrvSolver without propagation.
+	 */
+	public MrvSolver() {
+		this(false);
+	}
+
+	/**
+	 * Constructor for MrvSolver.
+	 *
+	 * @param propagate true to fill in singles before every branch.
+	 */
+	public MrvSolver(boolean propagate) {
+		this.propagate = propagate;
+	}
+
+	/**
+	 * Returns the number of squares of the last solution that were filled
+	 * by propagation.
+	 *
+	 * @return squares filled by propagation.
+	 */
+	public int getPropagatedCount() {
+		return propagated;
+	}
+
+	/**
+	 * Returns the number of squares of the last solution that were filled
+	 * by branching.
+	 *
+	 * @return squares filled by search.
+	 */
+	public int getSearchedCount() {
+		return searched;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean solve(int[] cells) {
+		propagated = 0;
+		searched = 0;
+		trailTop = 0;
+		masks.clear();
+		for (int cell = 0; cell < CELLS; cell++) {
+			int val = cells[cell];
+			if (val != 0) {
+				if (!masks.legal(cell, val)) {
+					return false;
+				}
+				masks.place(cell, val);
+			}
+		}
+
+		empty = 0;
+		for (int cell = 0; cell < CELLS; cell++) {
+			if (masks.get(cell) == 0) {
+				count[cell] = Integer.bitCount(masks.candidates(cell));
+				++empty;
+			}
+		}
+
+		if (!search()) {
+			return false;
+		}
+		for (int cell = 0; cell < CELLS; cell++) {
+			cells[cell] = masks.get(cell);
+		}
+		return true;
+	}
+
+	/**
+	 * Fills the most constrained square with each of its candidates in turn.
+	 *
+	 * @return true iff the board was solved, in which case it is left filled.
+	 */
+	private boolean search() {
+		int mark = trailTop;
+		if (propagate && !propagateSingles()) {
+			undo(mark);
+			return false;
+		}
+		if (empty == 0) {
+			return true;
+		}
+
+		int best = -1;
+		int fewest = Integer.MAX_VALUE;
+		for (int cell = 0; cell < CELLS && fewest > 1; cell++) {
+			if (masks.get(cell) == 0 && count[cell] < fewest) {
+				best = cell;
+				fewest = count[cell];
+			}
+		}
+		if (fewest == 0) {
+			undo(mark);
+			return false;
+		}
+
+		int options = masks.candidates(best);
+		while (options != 0) {
+			int bit = options & -options;
+			options ^= bit;
+			int val = Integer.numberOfTrailingZeros(bit) + 1;
+
+			boolean deadEnd = assign(best, val);
+			++searched;
+			if (!deadEnd && search()) {
+				return true;
+			}
+			unassign(best);
+			--searched;
+		}
+		undo(mark);
+		return false;
+	}
+
+	/**
+	 * Fills in naked and hidden singles until there are none left,
+	 * recording each one on the trail.
+	 *
+	 * @return false iff the board was found to be unsolvable.
+	 */
+	private boolean propagateSingles() {
+		int n;
+		while ((n = Propagator.collect(masks, singles)) > 0) {
+			for (int i = 0; i < n; i++) {
+				int cell = Propagator.cellOf(singles[i]);
+				int val = Propagator.valueOf(singles[i]);
+				if (masks.get(cell) != 0) {
+					if (masks.get(cell) != val) {
+						return false;
+					}
+					continue;
+				}
+				if (!masks.legal(cell, val)) {
+					return false;
+				}
+				boolean deadEnd = assign(cell, val);
+				trail[trailTop++] = cell;
+				++propagated;
+				if (deadEnd) {
+					return false;
+				}
+			}
+		}
+		return n == 0;
+	}
+
+	/**
+	 * Empties the squares propagation filled since the trail was at mark.
+	 *
+	 * @param mark trail height to go back to.
+	 */
+	private void undo(int mark) {
+		while (trailTop > mark) {
+			unassign(trail[--trailTop]);
+			--propagated;
+		}
+	}
+
+	/**
+	 * Places val and takes it off the candidate counts of the peers.
+	 *
+	 * @param cell index of an empty square.
+	 * @param val legal value for the square.
+	 * @return true iff some empty peer was left without candidates.
+	 */
+	private boolean assign(int cell, int val) {
+		int bit = 1 << (val - 1);
+		boolean deadEnd = false;
+		int[] peers = BitBoard.PEERS_OF[cell];
+		for (int i = 0; i < peers.length; i++) {
+			int p = peers[i];
+			if (masks.get(p) == 0 && (masks.candidates(p) & bit) != 0) {
+				if (--count[p] == 0) {
+					deadEnd = true;
+				}
+			}
+		}
+		masks.place(cell, val);
+		--empty;
+		return deadEnd;
+	}
+
+	/**
+	 * Undoes assign, giving the value back to the peers that lost it.
+	 *
+	 * @param cell index of the square to empty.
+	 */
+	private void unassign(int cell) {
+		int bit = 1 << (masks.get(cell) - 1);
+		masks.remove(cell);
+		++empty;
+		int[] peers = BitBoard.PEERS_OF[cell];
+		for (int i = 0; i < peers.length; i++) {
+			int p = peers[i];
+			if (masks.get(p) == 0 && (masks.candidates(p) & bit) != 0) {
+				++count[p];
+			}
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package com.powerje.sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solves a single board on every core.  The top levels of the search tree
+ * are split into fork/join tasks, one per candidate of the most constrained
+ * square, and idle workers steal whole subtrees from busy ones.  Below the
+ * split depth each task runs an IterativeSolver, one per worker thread.
+ * The first task to find a solution cancels all the others.
+ *
+ * A ParallelSolver may be shared between threads.
+ */
+public final class ParallelSolver implements Solver {
+	/** Levels of the search tree split into tasks by default. */
+	public static final int DEFAULT_SPLIT_DEPTH = 4;
+
+	/** Pool used by solvers that were not given one, created on first use. */
+	private static ForkJoinPool sharedPool;
+
+	/** Pool the tasks run in. */
+	private final ForkJoinPool pool;
+
+	/** Levels of the search tree split into tasks. */
+	private final int splitDepth;
+
+	/** Sequential solvers for the worker threads. */
+	private final Workspaces workspaces = Workspaces.shared();
+
+	/**
+	 * Constructor for ParallelSolver using a pool with one worker per core.
+	 */
+	public ParallelSolver() {
+		this(sharedPool(), DEFAULT_SPLIT_DEPTH);
+	}
+
+	/**
+	 * Constructor for ParallelSolver.
+	 *
+	 * @param pool pool to run the search in.
+	 * @param splitDepth levels of the search tree to split into tasks, 0
+	 * to run the whole search as one task.
+	 */
+	public ParallelSolver(ForkJoinPool pool, int splitDepth) {
+		if (splitDepth < 0) {
+			throw new IllegalArgumentException("splitDepth < 0");
+		}
+		this.pool = pool;
+		this.splitDepth = splitDepth;
+	}
+
+	/**
+	 * @return the pool shared by solvers that were not given one.
+	 */
+	private static synchronized ForkJoinPool sharedPool() {
+		if (sharedPool == null) {
+			sharedPool = new ForkJoinPool();
+		}
+		return sharedPool;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean solve(int[] cells) {
+		return solveCountingFills(cells) >= 0;
+	}
+
+	/**
+	 * Solves a board, counting the squares propagation filled.
+	 *
+	 * @param cells row-major board, 0 for empty squares.  Holds the
+	 * solution when this returns 0 or more and is left untouched otherwise.
+	 * @return squares of the solution filled by propagation rather than a
+	 * guess, or -1 if the board was not solved.
+	 */
+	int solveCountingFills(int[] cells) {
+		Search search = new Search();
+		pool.invoke(new Branch(search, cells.clone(), splitDepth, 0));
+		int[] solution = search.solution.get();
+		if (solution == null) {
+			return -1;
+		}
+		System.arraycopy(solution, 0, cells, 0, cells.length);
+		return search.fills;
+	}
+
+	/**
+	 * State shared by all the tasks of one solve.
+	 */
+	private static final class Search {
+		/** Raised once a solution has been found. */
+		private final CancellationToken done = new CancellationToken();
+
+		/** The first solution found. */
+		private final AtomicReference<int[]> solution =
+				new AtomicReference<int[]>();
+
+		/** Squares of the solution filled by propagation. */
+		private volatile int fills;
+
+		/**
+		 * Records a solution and cancels every other task.
+		 *
+		 * @param cells solved board.
+		 * @param filled squares of it filled by propagation.
+		 */
+		void publish(int[] cells, int filled) {
+			if (solution.compareAndSet(null, cells)) {
+				fills = filled;
+				done.cancel();
+			}
+		}
+	}
+
+	/**
+	 * Searches the subtree below a partly filled board.
+	 */
+	private final class Branch extends RecursiveAction {
+		/** Serial version UID. */
+		private static final long serialVersionUID = 1L;
+
+		/** Solve this task belongs to. */
+		private final Search search;
+
+		/** Board at the root of the subtree, owned by this task. */
+		private final int[] cells;
+
+		/** Levels left to split into tasks. */
+		private final int depth;
+
+		/** Squares filled by propagation on the way to this subtree. */
+		private final int fills;
+
+		/**
+		 * Constructor for Branch.
+		 *
+		 * @param search solve this task belongs to.
+		 * @param cells board at the root of the subtree.
+		 * @param depth levels left to split into tasks.
+		 * @param fills squares filled by propagation on the way.
+		 */
+		Branch(Search search, int[] cells, int depth, int fills) {
+			this.search = search;
+			this.cells = cells;
+			this.depth = depth;
+			this.fills = fills;
+		}
+
+		@Override
+		protected void compute() {
+			if (search.done.isCancelled()) {
+				return;
+			}
+			List<Branch> children = new ArrayList<Branch>();
+			Workspace w = workspaces.acquire();
+			try {
+				IterativeSolver solver = w.solver();
+				if (depth == 0) {
+					SolveResult result = solver.solve(cells,
+							SolveBudget.unlimited(), search.done);
+					if (result.isSolved()) {
+						search.publish(result.getSolution(),
+								fills + solver.getSolutionFills());
+					}
+					return;
+				}
+
+				int before = emptySquares(cells);
+				int best = solver.propagateAndPick(cells);
+				int filled = fills + before - emptySquares(cells);
+				if (best == IterativeSolver.SOLVED) {
+					search.publish(cells, filled);
+					return;
+				} else if (best == IterativeSolver.UNSOLVABLE) {
+					return;
+				}
+
+				int options = solver.candidates(best);
+				while (options != 0) {
+					int bit = options & -options;
+					options ^= bit;
+					int[] child = cells.clone();
+					child[best] = Integer.numberOfTrailingZeros(bit) + 1;
+					children.add(new Branch(search, child, depth - 1,
+							filled));
+				}
+			} finally {
+				// children may run on this thread and need a workspace
+				workspaces.release(w);
+			}
+			invokeAll(children);
+		}
+	}
+
+	/**
+	 * @param cells row-major board.
+	 * @return number of empty squares.
+	 */
+	private static int emptySquares(int[] cells) {
+		int n = 0;
+		for (int val : cells) {
+			if (val == 0) {
+				++n;
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,130 @@
+package com.powerje.sudoku;
+
+/**
+ * Finds the squares whose value is forced on a board: naked singles, where
+ * a square has only one legal symbol, and hidden singles, where a symbol
+ * fits in only one square of a row, column or box.
+ *
+ * Callers place what collect() finds and call it again until it finds
+ * nothing, which is how SudokuModel and MrvSolver propagate before and
+ * during search.
+ */
+public final class Propagator {
+	/** Large grid size. */
+	private static final int SIZE = BitBoard.SIZE;
+
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Returned by collect when the board cannot be solved. */
+	public static final int CONTRADICTION = -1;
+
+	/**
+	 * Most placements one sweep can report: every square as a naked
+	 * single and once more for each of its three units.
+	 */
+	public static final int MAX_SINGLES = 4 * CELLS;
+
+	/**
+	 * Default constructor.
+	 */
+	private Propagator() {
+	}
+
+	/**
+	 * Encodes a forced placement as written by collect.
+	 *
+	 * @param cell index of the square.
+	 * @param val value forced into it.
+	 * @return encoded placement.
+	 */
+	public static int encode(int cell, int val) {
+		return cell * SIZE + val - 1;
+	}
+
+	/**
+	 * Returns the square of an encoded placement.
+	 *
+	 * @param single placement written by collect.
+	 * @return cell index of the square.
+	 */
+	public static int cellOf(int single) {
+		return single / SIZE;
+	}
+
+	/**
+	 * Returns the value of an encoded placement.
+	 *
+	 * @param single placement written by collect.
+	 * @return value forced into the square.
+	 */
+	public static int valueOf(int single) {
+		return single % SIZE + 1;
+	}
+
+	/**
+	 * Sweeps the board once for naked and hidden singles.  The same square
+	 * may be reported twice, and two singles found in one sweep may clash;
+	 * callers check legality as they place them.
+	 *
+	 * @param masks board to examine, left unchanged.
+	 * @param out receives encoded placements, needs room for MAX_SINGLES.
+	 * @return number of placements written to out, or CONTRADICTION if an
+	 * empty square has no legal symbol or a unit has no room for a symbol
+	 * it still needs.
+	 */
+	public static int collect(BitBoard masks, int[] out) {
+		int n = 0;
+
+		for (int cell = 0; cell < CELLS; cell++) {
+			if (masks.get(cell) != 0) {
+				continue;
+			}
+			int options = masks.candidates(cell);
+			if (options == 0) {
+				return CONTRADICTION;
+			}
+			if ((options & (options - 1)) == 0) {
+				out[n++] = encode(cell,
+						Integer.numberOfTrailingZeros(options) + 1);
+			}
+		}
+
+		for (int u = 0; u < BitBoard.UNITS; u++) {
+			int[] unit = BitBoard.UNIT_CELLS[u];
+			int once = 0;
+			int twice = 0;
+			int placed = 0;
+			for (int i = 0; i < SIZE; i++) {
+				int val = masks.get(unit[i]);
+				if (val != 0) {
+					placed |= 1 << (val - 1);
+				} else {
+					int options = masks.candidates(unit[i]);
+					twice |= once & options;
+					once |= options;
+				}
+			}
+			if ((once | placed) != BitBoard.ALL) {
+				return CONTRADICTION;
+			}
+			int hidden = once & ~twice;
+			for (int i = 0; i < SIZE && hidden != 0; i++) {
+				if (masks.get(unit[i]) != 0) {
+					continue;
+				}
+				int mine = masks.candidates(unit[i]) & hidden;
+				if (mine != 0) {
+					if ((mine & (mine - 1)) != 0) {
+						// one square is the only home of two symbols
+						return CONTRADICTION;
+					}
+					hidden &= ~mine;
+					out[n++] = encode(unit[i],
+							Integer.numberOfTrailingZeros(mine) + 1);
+				}
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,72 @@
+package com.powerje.sudoku;
+
+/**
+ * A puzzle together with its solution and rating, as kept in a
+ * PuzzleArchive.
+ */
+public final class Puzzle {
+	/** Rating of a puzzle that has not been graded. */
+	public static final int UNRATED = -1;
+
+	/** The clues. */
+	private final Board puzzle;
+
+	/** The unique solution. */
+	private final Board solution;
+
+	/** Difficulty rating, UNRATED if unknown. */
+	private final int rating;
+
+	/**
+	 * Constructor for Puzzle.
+	 *
+	 * @param puzzle the clues.
+	 * @param solution the unique solution of puzzle.
+	 * @param rating difficulty rating, UNRATED if unknown.
+	 */
+	public Puzzle(Board puzzle, Board solution, int rating) {
+		if (puzzle == null || solution == null) {
+			throw new NullPointerException("puzzle and solution are required");
+		}
+		this.puzzle = puzzle;
+		this.solution = solution;
+		this.rating = rating;
+	}
+
+	/**
+	 * @return the clues.
+	 */
+	public Board getPuzzle() {
+		return puzzle;
+	}
+
+	/**
+	 * @return the unique solution.
+	 */
+	public Board getSolution() {
+		return solution;
+	}
+
+	/**
+	 * @return difficulty rating, UNRATED if unknown.
+	 */
+	public int getRating() {
+		return rating;
+	}
+
+	/**
+	 * @return the Difficulty whose ordinal is the rating, as Generator
+	 * rates puzzles, or null if unrated or out of range.
+	 */
+	public Difficulty getDifficulty() {
+		Difficulty[] all = Difficulty.values();
+		return rating >= 0 && rating < all.length ? all[rating] : null;
+	}
+
+	/**
+	 * @return number of clues in the puzzle.
+	 */
+	public int clueCount() {
+		return puzzle.clueCount();
+	}
+}
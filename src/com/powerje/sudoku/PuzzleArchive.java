@@ -0,0 +1,210 @@
+package com.powerje.sudoku;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Random access to a binary puzzle archive written by PuzzleArchiveWriter.
+ * The archive is a HEADER_BYTES header followed by fixed-size records, so
+ * puzzle n lives at HEADER_BYTES + n * RECORD_BYTES and reading it touches
+ * a single page of the memory-mapped file.
+ *
+ * Header, big-endian: the MAGIC int, the VERSION int, the RECORD_BYTES int,
+ * a reserved int and the record count as a long, padded to HEADER_BYTES.
+ * Record: the packed puzzle, the packed solution, the clue count byte, a
+ * reserved byte and the rating int.
+ *
+ * Archives are mapped in segments of whole records, so archives of more
+ * than 2 GB read the same as small ones.  Reads do not move any shared
+ * position, so one archive can be read from many threads at once.
+ */
+public final class PuzzleArchive implements Closeable {
+	/** First four bytes of every archive: "SDKA". */
+	static final int MAGIC = 0x53444b41;
+
+	/** Format version written by PuzzleArchiveWriter. */
+	static final int VERSION = 1;
+
+	/** Bytes before the first record. */
+	static final int HEADER_BYTES = 32;
+
+	/** Offset of the record count in the header. */
+	static final int COUNT_OFFSET = 16;
+
+	/** Offset of the solution in a record. */
+	static final int SOLUTION_OFFSET = Board.PACKED_BYTES;
+
+	/** Offset of the clue count in a record. */
+	static final int CLUES_OFFSET = 2 * Board.PACKED_BYTES;
+
+	/** Offset of the rating in a record. */
+	static final int RATING_OFFSET = CLUES_OFFSET + 2;
+
+	/** Bytes per record. */
+	public static final int RECORD_BYTES = RATING_OFFSET + 4;
+
+	/** Records per mapped segment, keeping each mapping near 1 GB. */
+	private static final long SEGMENT_RECORDS = (1L << 30) / RECORD_BYTES;
+
+	/** File the archive is read from. */
+	private final RandomAccessFile file;
+
+	/** Number of records. */
+	private final long count;
+
+	/** Mapped records, SEGMENT_RECORDS per segment. */
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Opens an archive for reading.
+	 *
+	 * @param f archive file.
+	 * @throws IOException if the file cannot be read or is not an archive.
+	 */
+	public PuzzleArchive(File f) throws IOException {
+		file = new RandomAccessFile(f, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readHeader(channel, header);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException("Not a puzzle archive: " + f);
+			}
+			if (header.getInt(4) != VERSION
+					|| header.getInt(8) != RECORD_BYTES) {
+				throw new IOException("Unsupported archive version "
+						+ header.getInt(4) + ": " + f);
+			}
+			count = header.getLong(COUNT_OFFSET);
+			if (count < 0
+					|| HEADER_BYTES + count * RECORD_BYTES > channel.size()) {
+				throw new IOException("Truncated puzzle archive: " + f);
+			}
+
+			int n = (int) ((count + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS);
+			segments = new MappedByteBuffer[n];
+			for (int i = 0; i < n; i++) {
+				long first = i * SEGMENT_RECORDS;
+				long records = Math.min(SEGMENT_RECORDS, count - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						HEADER_BYTES + first * RECORD_BYTES,
+						records * RECORD_BYTES);
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the header of an archive.
+	 *
+	 * @param channel channel of the archive.
+	 * @param header receives HEADER_BYTES bytes.
+	 * @throws IOException if the file is shorter than a header.
+	 */
+	static void readHeader(FileChannel channel, ByteBuffer header)
+			throws IOException {
+		header.clear();
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				throw new IOException("Truncated puzzle archive header");
+			}
+		}
+	}
+
+	/**
+	 * @return number of puzzles in the archive.
+	 */
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * Reads puzzle n.
+	 *
+	 * @param n index of the puzzle, 0 to size() - 1.
+	 * @return the puzzle with its solution and rating.
+	 */
+	public Puzzle get(long n) {
+		ByteBuffer segment = segmentOf(n);
+		int at = offsetOf(n);
+		return new Puzzle(board(segment, at), board(segment,
+				at + SOLUTION_OFFSET), segment.getInt(at + RATING_OFFSET));
+	}
+
+	/**
+	 * Reads the clues of puzzle n without its solution.
+	 *
+	 * @param n index of the puzzle, 0 to size() - 1.
+	 * @return the clues.
+	 */
+	public Board getPuzzle(long n) {
+		return board(segmentOf(n), offsetOf(n));
+	}
+
+	/**
+	 * @param n index of the puzzle, 0 to size() - 1.
+	 * @return number of clues of puzzle n.
+	 */
+	public int clueCount(long n) {
+		return segmentOf(n).get(offsetOf(n) + CLUES_OFFSET);
+	}
+
+	/**
+	 * @param n index of the puzzle, 0 to size() - 1.
+	 * @return rating of puzzle n, Puzzle.UNRATED if unknown.
+	 */
+	public int rating(long n) {
+		return segmentOf(n).getInt(offsetOf(n) + RATING_OFFSET);
+	}
+
+	/**
+	 * @param n index of a puzzle.
+	 * @return the segment holding record n.
+	 */
+	private ByteBuffer segmentOf(long n) {
+		if (n < 0 || n >= count) {
+			throw new IndexOutOfBoundsException("Puzzle " + n + " of " + count);
+		}
+		return segments[(int) (n / SEGMENT_RECORDS)];
+	}
+
+	/**
+	 * @param n index of a puzzle.
+	 * @return offset of record n in its segment.
+	 */
+	private static int offsetOf(long n) {
+		return (int) (n % SEGMENT_RECORDS) * RECORD_BYTES;
+	}
+
+	/**
+	 * Unpacks a board with absolute reads, leaving the buffer position be.
+	 *
+	 * @param segment mapped records.
+	 * @param at offset of the packed board.
+	 * @return the board.
+	 */
+	private static Board board(ByteBuffer segment, int at) {
+		byte[] packed = new byte[Board.PACKED_BYTES];
+		for (int i = 0; i < packed.length; i++) {
+			packed[i] = segment.get(at + i);
+		}
+		return Board.unpack(packed, 0);
+	}
+
+	/**
+	 * Closes the archive.  Puzzles already read stay valid.
+	 *
+	 * @throws IOException if closing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
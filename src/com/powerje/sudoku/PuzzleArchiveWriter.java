@@ -0,0 +1,183 @@
+package com.powerje.sudoku;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends puzzles to a binary archive read by PuzzleArchive.  Records are
+ * gathered in a buffer and written a batch at a time; the record count in
+ * the header is only brought up to date after each batch is on disk, so a
+ * crash loses at most the unwritten batch and never leaves a count that
+ * runs past the records.
+ *
+ * Opening an existing archive appends to it.  A writer must not be shared
+ * between threads, and an archive must not have two writers at once.
+ */
+public final class PuzzleArchiveWriter implements Closeable {
+	/** Records buffered between writes by default. */
+	public static final int DEFAULT_BATCH = 4096;
+
+	/** File written to. */
+	private final RandomAccessFile file;
+
+	/** Channel of file. */
+	private final FileChannel channel;
+
+	/** Records waiting to be written. */
+	private final ByteBuffer batch;
+
+	/** Records on disk. */
+	private long count;
+
+	/** Scratch space for packing boards. */
+	private final byte[] packed = new byte[Board.PACKED_BYTES];
+
+	/**
+	 * Opens an archive for appending with the default batch size, creating
+	 * it if it does not exist.
+	 *
+	 * @param f archive file.
+	 * @throws IOException if the file cannot be written or is not an
+	 * archive.
+	 */
+	public PuzzleArchiveWriter(File f) throws IOException {
+		this(f, DEFAULT_BATCH);
+	}
+
+	/**
+	 * Opens an archive for appending, creating it if it does not exist.
+	 *
+	 * @param f archive file.
+	 * @param batchSize records buffered between writes.
+	 * @throws IOException if the file cannot be written or is not an
+	 * archive.
+	 */
+	public PuzzleArchiveWriter(File f, int batchSize) throws IOException {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be positive: "
+					+ batchSize);
+		}
+		batch = ByteBuffer.allocate(batchSize * PuzzleArchive.RECORD_BYTES);
+		file = new RandomAccessFile(f, "rw");
+		channel = file.getChannel();
+		try {
+			ByteBuffer header = ByteBuffer.allocate(PuzzleArchive.HEADER_BYTES);
+			if (channel.size() == 0) {
+				header.putInt(PuzzleArchive.MAGIC);
+				header.putInt(PuzzleArchive.VERSION);
+				header.putInt(PuzzleArchive.RECORD_BYTES);
+				// reserved int, zero count and padding
+				header.position(PuzzleArchive.HEADER_BYTES);
+				header.flip();
+				write(header, 0);
+				count = 0;
+			} else {
+				PuzzleArchive.readHeader(channel, header);
+				if (header.getInt(0) != PuzzleArchive.MAGIC
+						|| header.getInt(4) != PuzzleArchive.VERSION
+						|| header.getInt(8) != PuzzleArchive.RECORD_BYTES) {
+					throw new IOException("Not a puzzle archive: " + f);
+				}
+				count = header.getLong(PuzzleArchive.COUNT_OFFSET);
+				// drop any part of a batch written after the last count
+				channel.truncate(PuzzleArchive.HEADER_BYTES
+						+ count * PuzzleArchive.RECORD_BYTES);
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return puzzles in the archive, including those not yet written.
+	 */
+	public long size() {
+		return count + batch.position() / PuzzleArchive.RECORD_BYTES;
+	}
+
+	/**
+	 * Adds a puzzle to the archive.
+	 *
+	 * @param p puzzle to add.
+	 * @throws IOException if a full batch cannot be written.
+	 */
+	public void append(Puzzle p) throws IOException {
+		p.getPuzzle().pack(packed, 0);
+		batch.put(packed);
+		p.getSolution().pack(packed, 0);
+		batch.put(packed);
+		batch.put((byte) p.clueCount());
+		batch.put((byte) 0);
+		batch.putInt(p.getRating());
+		if (!batch.hasRemaining()) {
+			flush();
+		}
+	}
+
+	/**
+	 * Adds puzzles to the archive.
+	 *
+	 * @param puzzles puzzles to add, in order.
+	 * @throws IOException if a batch cannot be written.
+	 */
+	public void appendAll(Iterable<Puzzle> puzzles) throws IOException {
+		for (Puzzle p : puzzles) {
+			append(p);
+		}
+	}
+
+	/**
+	 * Writes the buffered records and then the new record count.
+	 *
+	 * @throws IOException if writing fails.
+	 */
+	public void flush() throws IOException {
+		if (batch.position() == 0) {
+			return;
+		}
+		long records = batch.position() / PuzzleArchive.RECORD_BYTES;
+		batch.flip();
+		write(batch, PuzzleArchive.HEADER_BYTES
+				+ count * PuzzleArchive.RECORD_BYTES);
+		batch.clear();
+		channel.force(false);
+
+		count += records;
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putLong(count);
+		header.flip();
+		write(header, PuzzleArchive.COUNT_OFFSET);
+	}
+
+	/**
+	 * Writes all of buf at pos.
+	 *
+	 * @param buf bytes to write.
+	 * @param pos file offset.
+	 * @throws IOException if writing fails.
+	 */
+	private void write(ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining()) {
+			pos += channel.write(buf, pos);
+		}
+	}
+
+	/**
+	 * Writes what is buffered and closes the archive.
+	 *
+	 * @throws IOException if writing or closing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			file.close();
+		}
+	}
+}
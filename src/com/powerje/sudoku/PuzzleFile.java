@@ -0,0 +1,315 @@
+package com.powerje.sudoku;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads puzzle files in the common one-puzzle-per-line text format: 81
+ * characters per line, '1' to '9' for clues and '.' or '0' for empty
+ * squares, anything after the 81st character ignored.  The file is
+ * memory-mapped and lines are parsed straight from the mapped bytes into
+ * packed boards, so no Strings are made whatever the size of the file.
+ *
+ * split() cuts the file into Ranges on line boundaries so several threads
+ * can read it at once, one Range each.  A Range maps its part of the file
+ * a window at a time, so files beyond the 2 GB limit of a single mapping
+ * read the same as small ones.  Lines that are too short or hold other
+ * characters are skipped and counted.
+ */
+public final class PuzzleFile implements Closeable {
+	/** Characters of a puzzle on a line. */
+	public static final int LINE_CELLS = Board.CELLS;
+
+	/** Most bytes mapped at once, well under the 2 GB mapping limit. */
+	private static final long MAP_WINDOW = 1L << 30;
+
+	/**
+	 * Bytes kept ahead in a window before mapping the next one, so a line
+	 * of normal length is never cut by the end of a window.
+	 */
+	private static final int LOOKAHEAD = 256;
+
+	/** Bytes read at a time when looking for the end of a line. */
+	private static final int SCAN = 4096;
+
+	/** File the puzzles are read from. */
+	private final RandomAccessFile file;
+
+	/** Channel of file. */
+	private final FileChannel channel;
+
+	/** Length of the file in bytes. */
+	private final long length;
+
+	/**
+	 * Opens a puzzle file for reading.
+	 *
+	 * @param f file in the one-puzzle-per-line format.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public PuzzleFile(File f) throws IOException {
+		file = new RandomAccessFile(f, "r");
+		channel = file.getChannel();
+		length = channel.size();
+	}
+
+	/**
+	 * @return length of the file in bytes.
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * @return a Range covering the whole file.
+	 */
+	public Range all() {
+		return new Range(0, length);
+	}
+
+	/**
+	 * Cuts the file into about equal ranges, each starting at the start of
+	 * a line, for reading from several threads.
+	 *
+	 * @param parts number of ranges wanted, at least 1.
+	 * @return the ranges in file order, fewer than parts if the file is
+	 * too small to split that far.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public List<Range> split(int parts) throws IOException {
+		if (parts < 1) {
+			throw new IllegalArgumentException("parts must be positive: "
+					+ parts);
+		}
+		List<Range> ranges = new ArrayList<Range>(parts);
+		long start = 0;
+		for (int i = 1; i <= parts && start < length; i++) {
+			long end = (i == parts) ? length
+					: nextLine(Math.max(start, length / parts * i));
+			if (end > start) {
+				ranges.add(new Range(start, end));
+				start = end;
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * Finds the start of the first line at or after pos.
+	 *
+	 * @param pos byte offset into the file.
+	 * @return offset just past the next newline before or at pos, or
+	 * pos itself if it already starts a line, or length if there is none.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private long nextLine(long pos) throws IOException {
+		if (pos == 0 || pos >= length) {
+			return Math.min(pos, length);
+		}
+		ByteBuffer buf = ByteBuffer.allocate(SCAN);
+		long at = pos - 1;
+		while (at < length) {
+			buf.clear();
+			int n = channel.read(buf, at);
+			if (n <= 0) {
+				break;
+			}
+			for (int i = 0; i < n; i++) {
+				if (buf.get(i) == '\n') {
+					return at + i + 1;
+				}
+			}
+			at += n;
+		}
+		return length;
+	}
+
+	/**
+	 * Closes the file.  Ranges already handed out must not be read after.
+	 *
+	 * @throws IOException if closing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Part of the file starting and ending on line boundaries, read from
+	 * start to end.  A Range must not be shared between threads.
+	 */
+	public final class Range {
+		/** Offset of the first byte. */
+		private final long start;
+
+		/** Offset just past the last byte. */
+		private final long end;
+
+		/** Mapped window of the range, null before the first read. */
+		private MappedByteBuffer window;
+
+		/** File offset of the first byte of window. */
+		private long windowStart;
+
+		/** Lines passed over because they did not hold a puzzle. */
+		private long skipped;
+
+		/**
+		 * Constructor for Range.
+		 *
+		 * @param start offset of the first byte.
+		 * @param end offset just past the last byte.
+		 */
+		private Range(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return offset of the first byte.
+		 */
+		public long start() {
+			return start;
+		}
+
+		/**
+		 * @return offset just past the last byte.
+		 */
+		public long end() {
+			return end;
+		}
+
+		/**
+		 * @return lines passed over so far because they did not hold a
+		 * puzzle.
+		 */
+		public long getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * Reads the next puzzle of the range into packed form, as written
+		 * by Board.pack().
+		 *
+		 * @param packed receives Board.PACKED_BYTES bytes.
+		 * @param off offset of the first byte written.
+		 * @return false iff the range has no puzzles left.
+		 * @throws IOException if the file cannot be mapped.
+		 */
+		public boolean next(byte[] packed, int off) throws IOException {
+			while (true) {
+				if (!fill()) {
+					return false;
+				}
+				if (parse(packed, off)) {
+					return true;
+				}
+				++skipped;
+			}
+		}
+
+		/**
+		 * Reads the next puzzle of the range.
+		 *
+		 * @return the puzzle, or null if the range has no puzzles left.
+		 * @throws IOException if the file cannot be mapped.
+		 */
+		public Board next() throws IOException {
+			byte[] packed = new byte[Board.PACKED_BYTES];
+			return next(packed, 0) ? Board.unpack(packed, 0) : null;
+		}
+
+		/**
+		 * Makes sure the window holds the next line, or what is left of
+		 * the range if that is shorter than LOOKAHEAD.
+		 *
+		 * @return false iff the range is used up.
+		 * @throws IOException if the file cannot be mapped.
+		 */
+		private boolean fill() throws IOException {
+			if (window == null) {
+				map(start);
+			} else if (window.remaining() < LOOKAHEAD
+					&& windowStart + window.limit() < end) {
+				map(windowStart + window.position());
+			}
+			return window.hasRemaining();
+		}
+
+		/**
+		 * Maps the window starting at pos.
+		 *
+		 * @param pos file offset within the range.
+		 * @throws IOException if the file cannot be mapped.
+		 */
+		private void map(long pos) throws IOException {
+			windowStart = pos;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+					Math.min(MAP_WINDOW, end - pos));
+		}
+
+		/**
+		 * Parses the line at the window position and moves past it.
+		 *
+		 * @param packed receives the packed puzzle.
+		 * @param off offset of the first byte written.
+		 * @return true iff the line held a puzzle.
+		 * @throws IOException if the file cannot be mapped.
+		 */
+		private boolean parse(byte[] packed, int off) throws IOException {
+			int pos = window.position();
+			if (window.limit() - pos < LINE_CELLS) {
+				skipLine();
+				return false;
+			}
+			for (int i = 0; i < LINE_CELLS; i++) {
+				int c = window.get(pos + i);
+				int val;
+				if (c >= '1' && c <= '9') {
+					val = c - '0';
+				} else if (c == '.' || c == '0') {
+					val = 0;
+				} else {
+					skipLine();
+					return false;
+				}
+				if ((i & 1) == 0) {
+					packed[off + (i >> 1)] = (byte) (val << 4);
+				} else {
+					packed[off + (i >> 1)] |= (byte) val;
+				}
+			}
+			window.position(pos + LINE_CELLS);
+			skipLine();
+			return true;
+		}
+
+		/**
+		 * Moves the window position just past the next newline, mapping
+		 * further windows for overlong lines.
+		 *
+		 * @throws IOException if the file cannot be mapped.
+		 */
+		private void skipLine() throws IOException {
+			while (true) {
+				while (window.hasRemaining()) {
+					if (window.get() == '\n') {
+						return;
+					}
+				}
+				long next = windowStart + window.limit();
+				if (next >= end) {
+					return;
+				}
+				map(next);
+			}
+		}
+	}
+}
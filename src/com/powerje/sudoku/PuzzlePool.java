@@ -0,0 +1,236 @@
+package com.powerje.sudoku;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a bounded number of ready puzzles, each with its solution, so a new
+ * game is a queue poll instead of a generate and solve on the caller's
+ * thread.  A daemon thread refills the pool whenever it drops below
+ * capacity.  When the pool has run dry, take() waits for the refill thread
+ * rather than failing.
+ *
+ * Hits, misses and refill times are counted for tuning the capacity.  All
+ * methods are thread-safe.
+ */
+public final class PuzzlePool {
+	/** Ready puzzles kept by the shared pool. */
+	public static final int DEFAULT_CAPACITY = 8;
+
+	/** Clues the shared pool aims for. */
+	public static final int DEFAULT_CLUES = 26;
+
+	/** How often a waiting take() checks the refill thread is alive. */
+	private static final long WAIT_MILLIS = 50;
+
+	/** Pool behind shared(), created on first use. */
+	private static PuzzlePool shared;
+
+	/** Ready puzzles. */
+	private final BlockingQueue<Puzzle> ready;
+
+	/** Clues to aim for. */
+	private final int clues;
+
+	/** Thread generating puzzles into ready. */
+	private final Thread refill;
+
+	/** take() calls served straight from the pool. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** take() calls that had to wait for a puzzle. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** Puzzles generated. */
+	private final AtomicLong refills = new AtomicLong();
+
+	/** Time spent generating, in nanoseconds. */
+	private final AtomicLong refillNanos = new AtomicLong();
+
+	/** Longest single generation, in nanoseconds. */
+	private final AtomicLong maxRefillNanos = new AtomicLong();
+
+	/**
+	 * Constructor for PuzzlePool, starting the refill thread.
+	 *
+	 * @param capacity most ready puzzles kept, at least 1.
+	 * @param clues number of clues each puzzle aims for.
+	 */
+	public PuzzlePool(int capacity, int clues) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: "
+					+ capacity);
+		}
+		this.ready = new ArrayBlockingQueue<Puzzle>(capacity);
+		this.clues = clues;
+		this.refill = new Thread(new Runnable() {
+			public void run() {
+				refillLoop();
+			}
+		}, "sudoku-puzzle-pool");
+		refill.setDaemon(true);
+		refill.start();
+	}
+
+	/**
+	 * Returns the pool shared by the user interfaces, starting it on first
+	 * use.  Call early, e.g. at startup, so the first game finds it full.
+	 *
+	 * @return the shared pool.
+	 */
+	public static synchronized PuzzlePool shared() {
+		if (shared == null) {
+			shared = new PuzzlePool(DEFAULT_CAPACITY, DEFAULT_CLUES);
+		}
+		return shared;
+	}
+
+	/**
+	 * Takes a ready puzzle, waiting for the refill thread if there is none.
+	 *
+	 * @return a puzzle with a unique solution.
+	 * @throws IllegalStateException if the pool is empty and shut down.
+	 */
+	public Puzzle take() {
+		Puzzle p = ready.poll();
+		if (p != null) {
+			hits.incrementAndGet();
+			return p;
+		}
+		misses.incrementAndGet();
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					p = ready.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+					if (p != null) {
+						return p;
+					}
+					if (!refill.isAlive()) {
+						throw new IllegalStateException(
+								"PuzzlePool is shut down");
+					}
+				} catch (InterruptedException e) {
+					// keep waiting, the interrupt is restored below
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Takes a ready puzzle if there is one.
+	 *
+	 * @return a puzzle with a unique solution, or null if the pool is empty.
+	 */
+	public Puzzle poll() {
+		Puzzle p = ready.poll();
+		if (p != null) {
+			hits.incrementAndGet();
+		}
+		return p;
+	}
+
+	/**
+	 * @return number of ready puzzles.
+	 */
+	public int size() {
+		return ready.size();
+	}
+
+	/**
+	 * @return take() calls served straight from the pool.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return take() calls that had to wait for a puzzle.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return share of take() calls served straight from the pool, 1 if
+	 * there have been none.
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 1.0 : (double) h / total;
+	}
+
+	/**
+	 * @return puzzles generated by the refill thread.
+	 */
+	public long getRefills() {
+		return refills.get();
+	}
+
+	/**
+	 * @return mean time to generate a puzzle in nanoseconds, 0 if none.
+	 */
+	public long getAverageRefillNanos() {
+		long n = refills.get();
+		return n == 0 ? 0 : refillNanos.get() / n;
+	}
+
+	/**
+	 * @return longest time to generate a puzzle in nanoseconds.
+	 */
+	public long getMaxRefillNanos() {
+		return maxRefillNanos.get();
+	}
+
+	/**
+	 * Stops the refill thread.  Puzzles already in the pool can still be
+	 * taken.
+	 */
+	public void shutdown() {
+		refill.interrupt();
+	}
+
+	/**
+	 * Generates puzzles into the pool until interrupted, blocking while it
+	 * is full.
+	 */
+	private void refillLoop() {
+		Generator generator = new Generator(new Random());
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				long start = System.nanoTime();
+				Board puzzle = generator.generate(clues);
+				Puzzle p = new Puzzle(puzzle, generator.getSolution(),
+						Puzzle.UNRATED);
+				record(System.nanoTime() - start);
+				ready.put(p);
+			}
+		} catch (InterruptedException e) {
+			// shutdown
+		}
+	}
+
+	/**
+	 * Counts one generation.
+	 *
+	 * @param nanos time it took.
+	 */
+	private void record(long nanos) {
+		refills.incrementAndGet();
+		refillNanos.addAndGet(nanos);
+		long max;
+		while (nanos > (max = maxRefillNanos.get())
+				&& !maxRefillNanos.compareAndSet(max, nanos)) {
+			// lost a race with another update, read again
+		}
+	}
+}
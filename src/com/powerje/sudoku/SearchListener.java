@@ -0,0 +1,44 @@
+package com.powerje.sudoku;
+
+/**
+ * Receives the steps of a search as they happen, e.g. to trace, profile or
+ * animate it.  IterativeSolver and SudokuModel's ITERATIVE and BACKTRACKING
+ * engines report to one when it is set; when none is set each step costs a
+ * null check.  Calls are made on the searching thread, in order, and should
+ * return quickly.  Squares are row-major cell indexes.
+ */
+public interface SearchListener {
+	/**
+	 * A symbol was guessed on a square.
+	 *
+	 * @param cell the square.
+	 * @param val the symbol.
+	 * @param depth number of guesses on the board, this one included.
+	 */
+	void onPlace(int cell, int val, int depth);
+
+	/**
+	 * A guess was taken back, together with every square propagation
+	 * filled after it.
+	 *
+	 * @param cell square of the guess.
+	 * @param depth number of guesses left on the board.
+	 */
+	void onBacktrack(int cell, int depth);
+
+	/**
+	 * A square was filled because it was forced, a naked or hidden single.
+	 *
+	 * @param cell the square.
+	 * @param val the symbol.
+	 */
+	void onPropagate(int cell, int val);
+
+	/**
+	 * The board is full.  The search may carry on for more solutions.
+	 *
+	 * @param cells the row-major solution, only valid during the call and
+	 * not to be changed.
+	 */
+	void onSolution(int[] cells);
+}
@@ -0,0 +1,239 @@
+package com.powerje.sudoku;
+
+import java.io.IOException;
+
+/**
+ * SearchListener that records the steps of a search, e.g. of a puzzle
+ * that takes pathologically long, for replay or inspection.  Each step is
+ * packed into one int of a growing array; once capacity steps are held,
+ * later ones are only counted.  An instance must not be shared between
+ * threads.
+ */
+public final class SearchTrace implements SearchListener {
+	/** Kind of a guess. */
+	public static final int PLACE = 0;
+
+	/** Kind of a guess taken back. */
+	public static final int BACKTRACK = 1;
+
+	/** Kind of a forced fill. */
+	public static final int PROPAGATE = 2;
+
+	/** Kind of a solution found. */
+	public static final int SOLUTION = 3;
+
+	/** Steps kept by default. */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/** Names of the kinds, for toString(). */
+	private static final String[] NAMES = {
+		"place", "backtrack", "propagate", "solution"
+	};
+
+	/** Bits of a step holding its symbol. */
+	private static final int VAL_BITS = 8;
+
+	/** Bits of a step holding its square. */
+	private static final int CELL_BITS = 12;
+
+	/** Steps, packed kind | depth | cell | val from the high bits down. */
+	private int[] steps = new int[64];
+
+	/** Number of steps held. */
+	private int size;
+
+	/** Steps not kept because capacity was reached. */
+	private long dropped;
+
+	/** Most steps held. */
+	private final int capacity;
+
+	/**
+	 * Constructor for SearchTrace keeping DEFAULT_CAPACITY steps.
+	 */
+	public SearchTrace() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor for SearchTrace.
+	 *
+	 * @param capacity most steps kept.
+	 */
+	public SearchTrace(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity < 0");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onPlace(int cell, int val, int depth) {
+		add(PLACE, cell, val, depth);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onBacktrack(int cell, int depth) {
+		add(BACKTRACK, cell, 0, depth);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onPropagate(int cell, int val) {
+		add(PROPAGATE, cell, val, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onSolution(int[] cells) {
+		add(SOLUTION, 0, 0, 0);
+	}
+
+	/**
+	 * @return number of steps held.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return steps not kept because capacity was reached.
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @param i number of a step, below size().
+	 * @return its kind: PLACE, BACKTRACK, PROPAGATE or SOLUTION.
+	 */
+	public int kind(int i) {
+		return steps[check(i)] >>> 30;
+	}
+
+	/**
+	 * @param i number of a step, below size().
+	 * @return its square, 0 for SOLUTION.
+	 */
+	public int cell(int i) {
+		return (steps[check(i)] >>> VAL_BITS) & ((1 << CELL_BITS) - 1);
+	}
+
+	/**
+	 * @param i number of a step, below size().
+	 * @return its symbol, 0 for BACKTRACK and SOLUTION.
+	 */
+	public int value(int i) {
+		return steps[check(i)] & ((1 << VAL_BITS) - 1);
+	}
+
+	/**
+	 * @param i number of a step, below size().
+	 * @return its depth, 0 for PROPAGATE and SOLUTION.
+	 */
+	public int depth(int i) {
+		return (steps[check(i)] >>> (VAL_BITS + CELL_BITS))
+				& ((1 << (30 - VAL_BITS - CELL_BITS)) - 1);
+	}
+
+	/**
+	 * @param kind PLACE, BACKTRACK, PROPAGATE or SOLUTION.
+	 * @return number of steps held of that kind.
+	 */
+	public int count(int kind) {
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (steps[i] >>> 30 == kind) {
+				++n;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Forgets every step, e.g. before the next search.
+	 */
+	public void clear() {
+		size = 0;
+		dropped = 0;
+	}
+
+	/**
+	 * Writes the steps one per line, e.g. "place 40=7 depth 3".
+	 *
+	 * @param out where to write.
+	 * @throws IOException if out fails.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		for (int i = 0; i < size; i++) {
+			int kind = kind(i);
+			out.append(NAMES[kind]);
+			if (kind != SOLUTION) {
+				out.append(' ').append(Integer.toString(cell(i)));
+			}
+			if (kind == PLACE || kind == PROPAGATE) {
+				out.append('=').append(Integer.toString(value(i)));
+			}
+			if (kind == PLACE || kind == BACKTRACK) {
+				out.append(" depth ").append(Integer.toString(depth(i)));
+			}
+			out.append('\n');
+		}
+		if (dropped > 0) {
+			out.append(Long.toString(dropped)).append(" more steps dropped\n");
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeTo(sb);
+		} catch (IOException e) {
+			// StringBuilder does not throw
+			throw new AssertionError(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Appends one step.
+	 *
+	 * @param kind kind of the step.
+	 * @param cell its square.
+	 * @param val its symbol.
+	 * @param depth its depth.
+	 */
+	private void add(int kind, int cell, int val, int depth) {
+		if (size == capacity) {
+			++dropped;
+			return;
+		}
+		if (size == steps.length) {
+			int grown = (int) Math.min(capacity, 2L * steps.length);
+			int[] bigger = new int[grown];
+			System.arraycopy(steps, 0, bigger, 0, size);
+			steps = bigger;
+		}
+		steps[size++] = kind << 30 | depth << (VAL_BITS + CELL_BITS)
+				| cell << VAL_BITS | val;
+	}
+
+	/**
+	 * @param i number of a step.
+	 * @return i.
+	 * @throws IndexOutOfBoundsException if there is no such step.
+	 */
+	private int check(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("step " + i + " of " + size);
+		}
+		return i;
+	}
+}
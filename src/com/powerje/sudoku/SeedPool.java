@@ -0,0 +1,91 @@
+package com.powerje.sudoku;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Serves new games from a pool of vetted seed puzzles.  Each call to
+ * next() takes a random seed and hands out a random Transformer image of
+ * it, solution and rating included, so a game costs nanoseconds rather
+ * than a generate() and keeps the difficulty of its seed.
+ *
+ * next() is synchronized, so one pool can serve several threads.
+ */
+public final class SeedPool {
+	/** Seed puzzles, each with its solution. */
+	private final Puzzle[] seeds;
+
+	/** Source of randomness. */
+	private final Random random;
+
+	/** Transformer behind next(). */
+	private final Transformer transformer;
+
+	/**
+	 * Constructor for SeedPool.
+	 *
+	 * @param seeds vetted puzzles with unique solutions, at least one.
+	 * @param random source of randomness.
+	 */
+	public SeedPool(Collection<Puzzle> seeds, Random random) {
+		if (seeds.isEmpty()) {
+			throw new IllegalArgumentException("SeedPool needs a seed");
+		}
+		this.seeds = seeds.toArray(new Puzzle[seeds.size()]);
+		this.random = random;
+		this.transformer = new Transformer(random);
+	}
+
+	/**
+	 * Builds a pool from freshly generated puzzles.
+	 *
+	 * @param count number of seeds to generate.
+	 * @param clues number of clues each seed aims for.
+	 * @param random source of randomness.
+	 * @return the pool.
+	 */
+	public static SeedPool generate(int count, int clues, Random random) {
+		Generator generator = new Generator(random);
+		List<Puzzle> seeds = new ArrayList<Puzzle>(count);
+		for (int i = 0; i < count; i++) {
+			Board puzzle = generator.generate(clues);
+			seeds.add(new Puzzle(puzzle, generator.getSolution(),
+					Puzzle.UNRATED));
+		}
+		return new SeedPool(seeds, random);
+	}
+
+	/**
+	 * Builds a pool from the first puzzles of an archive.
+	 *
+	 * @param archive archive to read the seeds from.
+	 * @param max most seeds to read.
+	 * @param random source of randomness.
+	 * @return the pool.
+	 */
+	public static SeedPool load(PuzzleArchive archive, int max,
+			Random random) {
+		long n = Math.min(max, archive.size());
+		List<Puzzle> seeds = new ArrayList<Puzzle>((int) n);
+		for (long i = 0; i < n; i++) {
+			seeds.add(archive.get(i));
+		}
+		return new SeedPool(seeds, random);
+	}
+
+	/**
+	 * @return number of seed puzzles.
+	 */
+	public int size() {
+		return seeds.length;
+	}
+
+	/**
+	 * @return a random transform of a random seed.
+	 */
+	public synchronized Puzzle next() {
+		return transformer.transform(seeds[random.nextInt(seeds.length)]);
+	}
+}
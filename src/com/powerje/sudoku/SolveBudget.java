@@ -0,0 +1,91 @@
+package com.powerje.sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on how much work a solve may do: a wall-clock time limit, a
+ * number of search nodes, or both.  The clock starts when the solve does,
+ * so one budget can be reused for any number of solves.
+ */
+public final class SolveBudget {
+	/** Budget with no limits at all. */
+	private static final SolveBudget UNLIMITED =
+			new SolveBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+	/** Time allowed per solve in nanoseconds, Long.MAX_VALUE for no limit. */
+	private final long nanos;
+
+	/** Search nodes allowed per solve, Long.MAX_VALUE for no limit. */
+	private final long nodes;
+
+	/**
+	 * Constructor for SolveBudget.
+	 *
+	 * @param nanos time allowed in nanoseconds.
+	 * @param nodes search nodes allowed.
+	 */
+	private SolveBudget(long nanos, long nodes) {
+		if (nanos < 0 || nodes < 0) {
+			throw new IllegalArgumentException("Budget must not be negative");
+		}
+		this.nanos = nanos;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * @return a budget with no limits.
+	 */
+	public static SolveBudget unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * @param time time allowed per solve.
+	 * @param unit unit of time.
+	 * @return a budget limited only by time.
+	 */
+	public static SolveBudget ofTime(long time, TimeUnit unit) {
+		return new SolveBudget(unit.toNanos(time), Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param nodes search nodes allowed per solve.
+	 * @return a budget limited only by search nodes.
+	 */
+	public static SolveBudget ofNodes(long nodes) {
+		return new SolveBudget(Long.MAX_VALUE, nodes);
+	}
+
+	/**
+	 * @param time time allowed per solve.
+	 * @param unit unit of time.
+	 * @param nodes search nodes allowed per solve.
+	 * @return a budget that runs out at whichever limit is hit first.
+	 */
+	public static SolveBudget of(long time, TimeUnit unit, long nodes) {
+		return new SolveBudget(unit.toNanos(time), nodes);
+	}
+
+	/**
+	 * @return time allowed per solve in nanoseconds, Long.MAX_VALUE if
+	 * there is no time limit.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * @return search nodes allowed per solve, Long.MAX_VALUE if there is
+	 * no node limit.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return true iff the budget has a time limit.
+	 */
+	public boolean hasTimeLimit() {
+		return nanos != Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,92 @@
+package com.powerje.sudoku;
+
+/**
+ * Outcome of a budgeted solve.  Unlike SudokuModel.solve(), which returns
+ * null for every kind of failure, this says why a board was not solved.
+ */
+public final class SolveResult {
+	/**
+	 * How a solve ended.
+	 */
+	public enum Status {
+		/** The board was solved. */
+		SOLVED,
+
+		/** The whole search space was explored without a solution. */
+		UNSOLVABLE,
+
+		/** The time or node budget ran out first. */
+		BUDGET_EXHAUSTED,
+
+		/** The cancellation token was raised first. */
+		CANCELLED
+	}
+
+	/** How the solve ended. */
+	private final Status status;
+
+	/** The solved board, null unless status is SOLVED. */
+	private final int[] solution;
+
+	/** Search nodes visited. */
+	private final long nodes;
+
+	/** Wall-clock time spent in nanoseconds. */
+	private final long elapsedNanos;
+
+	/**
+	 * Constructor for SolveResult.
+	 *
+	 * @param status how the solve ended.
+	 * @param solution the solved board, null unless SOLVED.
+	 * @param nodes search nodes visited.
+	 * @param elapsedNanos time spent in nanoseconds.
+	 */
+	public SolveResult(Status status, int[] solution, long nodes,
+			long elapsedNanos) {
+		this.status = status;
+		this.solution = solution;
+		this.nodes = nodes;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return how the solve ended.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return true iff the board was solved.
+	 */
+	public boolean isSolved() {
+		return status == Status.SOLVED;
+	}
+
+	/**
+	 * @return the row-major solved board, null unless the board was solved.
+	 */
+	public int[] getSolution() {
+		return solution;
+	}
+
+	/**
+	 * @return search nodes visited.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return wall-clock time spent in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return status + " after " + nodes + " nodes, " + elapsedNanos + "ns";
+	}
+}
@@ -0,0 +1,16 @@
+package com.powerje.sudoku;
+
+/**
+ * A Sudoku solving engine.  Boards are handed over as row-major int
+ * arrays of BitBoard.CELLS values, 0 for an empty square.
+ */
+public interface Solver {
+	/**
+	 * Fills in the empty squares of the given board.
+	 * 
+	 * @param cells row-major board, 0 for empty squares.  Holds the
+	 * solution when this returns true and is left untouched otherwise.
+	 * @return true iff the board was solved.
+	 */
+	boolean solve(int[] cells);
+}
@@ -0,0 +1,24 @@
+package com.powerje.sudoku;
+
+/**
+ * Engines SudokuModel can use to solve a board.
+ */
+public enum SolverEngine {
+	/** Recursive depth first search, gives up after MAX_ITERATIONS. */
+	BACKTRACKING,
+
+	/** Algorithm X over the exact cover matrix, see DlxSolver. */
+	DANCING_LINKS,
+
+	/** Depth first search on the most constrained square, see MrvSolver. */
+	MOST_CONSTRAINED,
+
+	/** MOST_CONSTRAINED, filling in naked and hidden singles at every node. */
+	PROPAGATION,
+
+	/** PROPAGATION without recursion or allocation, see IterativeSolver. */
+	ITERATIVE,
+
+	/** ITERATIVE split across every core, see ParallelSolver. */
+	PARALLEL
+}
@@ -0,0 +1,180 @@
+package com.powerje.sudoku;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of solving and generating, for capacity planning: solves,
+ * search nodes, backtracks, deepest search, squares filled by propagation,
+ * generations and the retries they needed, and latency histograms of both.
+ * Search counts come from engines that keep them, i.e. IterativeSolver
+ * behind the ITERATIVE engine and ConcurrentSolver, and the BACKTRACKING
+ * engine.  Solves by the other engines add to the solve count, propagated
+ * squares and latency only.
+ *
+ * SudokuModel, ConcurrentSolver and Generator record into global() unless
+ * given another instance, or null to record nothing.  The
+ * com.powerje.sudoku.management package exports an instance over JMX.  All
+ * methods are thread-safe.
+ */
+public final class SolverMetrics {
+	/** Instance recorded into by default. */
+	private static final SolverMetrics GLOBAL = new SolverMetrics();
+
+	/** Solves recorded. */
+	private final AtomicLong solves = new AtomicLong();
+
+	/** Search nodes over all solves. */
+	private final AtomicLong nodes = new AtomicLong();
+
+	/** Backtracks over all solves. */
+	private final AtomicLong backtracks = new AtomicLong();
+
+	/** Deepest search of any solve. */
+	private final AtomicLong maxDepth = new AtomicLong();
+
+	/** Squares filled by propagation over all solves. */
+	private final AtomicLong propagated = new AtomicLong();
+
+	/** Puzzles generated. */
+	private final AtomicLong generations = new AtomicLong();
+
+	/** Grids dropped and started over while generating. */
+	private final AtomicLong retries = new AtomicLong();
+
+	/** Time per solve. */
+	private final LatencyHistogram solveLatency = new LatencyHistogram();
+
+	/** Time per generated puzzle. */
+	private final LatencyHistogram generateLatency = new LatencyHistogram();
+
+	/**
+	 * @return the instance recorded into by default.
+	 */
+	public static SolverMetrics global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Records one solve.
+	 *
+	 * @param nanos time it took.
+	 * @param nodes search nodes visited.
+	 * @param backtracks times the search backed up a level.
+	 * @param depth deepest level the search reached.
+	 * @param fills squares filled by propagation.
+	 */
+	public void recordSolve(long nanos, long nodes, long backtracks,
+			int depth, long fills) {
+		solves.incrementAndGet();
+		this.nodes.addAndGet(nodes);
+		this.backtracks.addAndGet(backtracks);
+		propagated.addAndGet(fills);
+		long m;
+		while (depth > (m = maxDepth.get())
+				&& !maxDepth.compareAndSet(m, depth)) {
+			// lost a race with another update, read again
+		}
+		solveLatency.record(nanos);
+	}
+
+	/**
+	 * Records the last search of an IterativeSolver as one solve.
+	 *
+	 * @param solver the solver.
+	 * @param nanos time the search took.
+	 */
+	public void recordSolve(IterativeSolver solver, long nanos) {
+		recordSolve(nanos, solver.getNodes(), solver.getBacktracks(),
+				solver.getMaxDepth(), solver.getPropagated());
+	}
+
+	/**
+	 * Records one generated puzzle.
+	 *
+	 * @param nanos time it took.
+	 * @param retried grids dropped and started over on the way.
+	 */
+	public void recordGeneration(long nanos, int retried) {
+		generations.incrementAndGet();
+		retries.addAndGet(retried);
+		generateLatency.record(nanos);
+	}
+
+	/**
+	 * @return solves recorded.
+	 */
+	public long getSolves() {
+		return solves.get();
+	}
+
+	/**
+	 * @return search nodes over all solves.
+	 */
+	public long getNodes() {
+		return nodes.get();
+	}
+
+	/**
+	 * @return backtracks over all solves.
+	 */
+	public long getBacktracks() {
+		return backtracks.get();
+	}
+
+	/**
+	 * @return deepest search level reached by any solve.
+	 */
+	public long getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	/**
+	 * @return squares filled by propagation over all solves.
+	 */
+	public long getPropagated() {
+		return propagated.get();
+	}
+
+	/**
+	 * @return puzzles generated.
+	 */
+	public long getGenerations() {
+		return generations.get();
+	}
+
+	/**
+	 * @return grids dropped and started over while generating.
+	 */
+	public long getGenerationRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * @return histogram of time per solve.
+	 */
+	public LatencyHistogram getSolveLatency() {
+		return solveLatency;
+	}
+
+	/**
+	 * @return histogram of time per generated puzzle.
+	 */
+	public LatencyHistogram getGenerateLatency() {
+		return generateLatency;
+	}
+
+	/**
+	 * Forgets everything recorded.
+	 */
+	public void reset() {
+		solves.set(0);
+		nodes.set(0);
+		backtracks.set(0);
+		maxDepth.set(0);
+		propagated.set(0);
+		generations.set(0);
+		retries.set(0);
+		solveLatency.reset();
+		generateLatency.reset();
+	}
+}
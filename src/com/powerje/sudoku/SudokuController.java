@@ -1,21 +1,32 @@
 package com.powerje.sudoku;
 
-import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles interaction between SudokuModel and a user representation
  * to the playing of the Sudoku.  Creates a SudokuModel and calls it until
  * it gets a good Sudoku board and its solution, which it then makes available
  * via getTable and getAnswers respectively.
+ *
+ * Only 9x9 boards are served, as both front ends draw 9x9 grids; boards
+ * with other box sizes, such as 16x16 and 25x25, come from WideGenerator.
  */
 
 public class SudokuController {
 	/** Number of squares on one side of Sudoku square. */
-	private static final int SIZE = 9;
-	/** String value of the current board. */
-	private String boardString = "";
-	/** String value of the solution to the current board. */
-	private String solvedBoardString = "";
+	private static final int SIZE = BitBoard.SIZE;
+	/**
+	 * Time allowed for generating a board of a given difficulty, in ms.
+	 * Most boards take under 30 ms, but HARD and EXPERT ones need a few
+	 * fresh grids and miss a 50 ms budget about one time in eight.
+	 */
+	public static final long DIFFICULTY_MILLIS = 200;
+	/** The current board. */
+	private Board puzzle;
+	/** Solution to the current board. */
+	private Board solution;
+	/** Difficulty of the current board, null if not known. */
+	private Difficulty difficulty;
 	/** 2-D array representation of current board. */
 	private int[][] table = new int[SIZE][SIZE];
 	/** 2-D array representation of answers to current board. */
@@ -25,42 +36,62 @@ public class SudokuController {
 	 * Constructor for SudokuController.
 	 */
 	public SudokuController() {
-		SudokuModel board1 = new SudokuModel();
-		boardString = board1.generate();
-		solvedBoardString = board1.solve();
+		generateStandard();
+	}
+
+	/**
+	 * Constructor for SudokuController with a board of the given
+	 * difficulty, or the closest found within DIFFICULTY_MILLIS;
+	 * getDifficulty() tells which.
+	 * 
+	 * @param target difficulty wanted.
+	 */
+	public SudokuController(Difficulty target) {
+		SudokuModel model = new SudokuModel();
+		Puzzle p = model.generatePuzzle(target, SolveBudget.ofTime(
+				DIFFICULTY_MILLIS, TimeUnit.MILLISECONDS));
+		puzzle = p.getPuzzle();
+		solution = p.getSolution();
+		difficulty = p.getDifficulty();
+		puzzle.copyTo(table);
+		solution.copyTo(answer);
+	}
 
-		while (solvedBoardString == null) {
-			System.out.println("Failed, retry...");
-			board1 = new SudokuModel();
-			boardString = board1.generate();
-			solvedBoardString = board1.solve();
-		}	
-		
-		StringTokenizer strtok = new StringTokenizer(boardString, ",");
-		int x = 0; 
-		int y = 0;
-		while (strtok.hasMoreTokens()) {
-			table[x][y] = Integer.parseInt(strtok.nextToken());
-			if (y == (SIZE - 1)) {
-				y = 0;
-				++x;
-			} else {
-				++y;
-			}
-		}
+	/**
+	 * Constructor for SudokuController serving a puzzle already at hand,
+	 * with no generation at all.
+	 * 
+	 * @param p 9x9 puzzle and its solution.
+	 */
+	public SudokuController(Puzzle p) {
+		puzzle = p.getPuzzle();
+		solution = p.getSolution();
+		difficulty = p.getDifficulty();
+		puzzle.copyTo(table);
+		solution.copyTo(answer);
+	}
 
-		strtok = new StringTokenizer(solvedBoardString, ",");
-		x = 0; 
-		y = 0;
-		while (strtok.hasMoreTokens()) {
-			answer[x][y] = Integer.parseInt(strtok.nextToken());
-			if (y == (SIZE - 1)) {
-				y = 0;
-				++x;
-			} else {
-				++y;
-			}
-		}
+	/**
+	 * Constructor for SudokuController serving a transform of a seed.
+	 * 
+	 * @param seeds pool to take the puzzle from.
+	 */
+	public SudokuController(SeedPool seeds) {
+		this(seeds.next());
+	}
+
+	/**
+	 * Fills table and answer with a 9x9 board from SudokuModel.
+	 */
+	private void generateStandard() {
+		SudokuModel board1 = new SudokuModel();
+		board1.setEngine(SolverEngine.ITERATIVE);
+		// generated boards always have exactly one solution
+		puzzle = board1.generateBoard();
+		solution = board1.solveBoard();
+
+		puzzle.copyTo(table);
+		solution.copyTo(answer);
 	}
 	
 	/**
@@ -78,4 +109,29 @@ public class SudokuController {
 	public int[][] getAnswer() {
 		return answer;
 	}
+
+	/**
+	 * Returns the current board.
+	 * @return the current board.
+	 */
+	public Board getPuzzle() {
+		return puzzle;
+	}
+
+	/**
+	 * Returns the solution to the current board.
+	 * @return the solved board.
+	 */
+	public Board getSolution() {
+		return solution;
+	}
+
+	/**
+	 * Returns the difficulty of the current board, which may differ from
+	 * the one asked for if it was not reached within DIFFICULTY_MILLIS.
+	 * @return the difficulty, null if the board was not graded.
+	 */
+	public Difficulty getDifficulty() {
+		return difficulty;
+	}
 }
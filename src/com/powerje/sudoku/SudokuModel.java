@@ -1,40 +1,41 @@
 package com.powerje.sudoku;
 
 import java.util.Random;
-import java.util.StringTokenizer;
 
 /**
  * Models a Sudoku board.  Generates a board from scratch and
  * solves the board as well.
  *
+ * The board lives in the instance, so a model must not be shared between
+ * threads; ConcurrentSolver solves from many threads at once.
  */
 public class SudokuModel {
 	/******** CLASS VARIABLES *********/
 
 	/** Large grid size. */
-	private static final int SIZE = 9;
-
-	/** Small grid size. */
-	private static final int SMALL_GRID = 3;
+	private static final int SIZE = BitBoard.SIZE;
 
 	/** Minimum number of squares necessary for unique Sudoku solution. */
 	private static final int MIN = 22;
 
 	/**
 	 * Variance above MIN to add to the board. Board will have MIN + (0 to BONUS)
-	 * squares pre-set. 
+	 * squares pre-set, or as close above that as a unique solution allows.
 	 */
 	private static final int BONUS = 20;
 
-	/** Max iterations for DFS to reach before giving up. */
-	private static final int MAX_ITERATIONS = 5000;
+	/** Default max iterations for DFS to reach before giving up. */
+	public static final int MAX_ITERATIONS = 5000;
 
 	/********* INSTANCE VARIABLES *******/
 	
 	/** Current number of iterations in depth first search,
-	 * used to check against MAX_ITERATIONS for timeouts. */
+	 * used to check against maxIterations for timeouts. */
 	private int numIterations = 0;
 
+	/** Max iterations for DFS to reach before giving up. */
+	private int maxIterations = MAX_ITERATIONS;
+
 	/** Value of board at pos x,y. */
 	private int[][] board;
 
@@ -47,6 +48,57 @@ public class SudokuModel {
 	/** [x][y] is true iff that position is fixed. */
 	private boolean[][] fixed = new boolean[SIZE][SIZE];
 
+	/** Row, column and box masks of the symbols still free on board. */
+	private BitBoard masks = new BitBoard();
+
+	/** Scratch space for Propagator.collect. */
+	private final int[] singles = new int[Propagator.MAX_SINGLES];
+
+	/** Engine used by solve(). */
+	private SolverEngine engine = SolverEngine.BACKTRACKING;
+
+	/** Solver for engines other than BACKTRACKING, created on first use. */
+	private Solver solver;
+
+	/** Generator behind generate(), created on first use. */
+	private Generator generator;
+
+	/** Grader behind grade(), created on first use. */
+	private Grader grader;
+
+	/** Canonicalizer behind fingerprint(), created on first use. */
+	private Canonicalizer canonicalizer;
+
+	/** Solver behind countSolutions(), created on first use. */
+	private IterativeSolver counter;
+
+	/** Squares the last solve() filled by propagation. */
+	private int propagatedCount = 0;
+
+	/** Squares the last solve() filled by search. */
+	private int searchedCount = 0;
+
+	/** Squares of the last engineSolve() solution filled by propagation. */
+	private int engineFills;
+
+	/** Whether the last solve() got as far as running its engine. */
+	private boolean engineRan;
+
+	/** Where solves and generations are recorded, or null. */
+	private SolverMetrics metrics = SolverMetrics.global();
+
+	/** Listener told about every step of a solve, or null. */
+	private SearchListener listener;
+
+	/** Guesses on the board during dfsSolve(). */
+	private int guesses;
+
+	/** Guesses the last dfsSolve() took back. */
+	private int dfsBacktracks;
+
+	/** Most guesses on the board at once during the last dfsSolve(). */
+	private int dfsMaxDepth;
+
 	/**
 	 * Constructor for SudokuModel.
 	 */
@@ -55,6 +107,55 @@ public class SudokuModel {
 		freesymbols = new int[SIZE];
 	}
 
+	/**
+	 * Selects the engine used by solve().
+	 * 
+	 * @param engine engine to solve with.
+	 */
+	public void setEngine(SolverEngine engine) {
+		if (engine != this.engine) {
+			this.engine = engine;
+			solver = null;
+		}
+	}
+
+	/**
+	 * Sets how many iterations the BACKTRACKING engine may use per solve()
+	 * before giving up.
+	 * 
+	 * @param maxIterations iteration limit, MAX_ITERATIONS by default.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Selects where solves and generations are recorded.
+	 * 
+	 * @param metrics metrics to record into, SolverMetrics.global() by
+	 * default, or null to record nothing.
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = metrics;
+		if (generator != null) {
+			generator.setMetrics(metrics);
+		}
+	}
+
+	/**
+	 * Sets the listener told about every step of later solves.  The
+	 * ITERATIVE and BACKTRACKING engines report their guesses, backtracks
+	 * and solutions, and every engine the singles filled in before search.
+	 * 
+	 * @param listener the listener, or null for none.
+	 */
+	public void setSearchListener(SearchListener listener) {
+		this.listener = listener;
+		if (solver instanceof IterativeSolver) {
+			((IterativeSolver) solver).setSearchListener(listener);
+		}
+	}
+
 	/**
 	 * Generate a Sudoku board.
 	 * 
@@ -62,70 +163,102 @@ public class SudokuModel {
 	 * a generated Sudoku board, i.e.: regex(([1-9],)^80,[1-9])
 	 */
 	public String generate() {
+		return generateBoard().toString();
+	}
+
+	/**
+	 * Generate a Sudoku board.
+	 * 
+	 * @return the generated board.
+	 */
+	public Board generateBoard() {
 
 		generatorInitialize();
 		generateSudoku();
 
-		return boardToString();
+		return toBoard();
 
 	}
 
+	/**
+	 * Generate a Sudoku puzzle of the given difficulty, which becomes the
+	 * current board.  The clue count follows from the difficulty rather
+	 * than MIN and BONUS.  If no puzzle of that difficulty turns up within
+	 * the budget, the closest one found is returned, so compare its
+	 * getDifficulty() with target.
+	 * 
+	 * @param target difficulty wanted.
+	 * @param budget time allowed for generating.
+	 * @return the generated puzzle with its solution and the Difficulty it
+	 * actually has.
+	 */
+	public Puzzle generatePuzzle(Difficulty target, SolveBudget budget) {
+		generatorInitialize();
+		if (generator == null) {
+			generator = new Generator(new Random());
+			generator.setMetrics(metrics);
+		}
+		Puzzle p = generator.generate(target, budget);
+		setClues(p.getPuzzle());
+		return p;
+	}
+
+	/**
+	 * Replaces the current board, e.g. with a puzzle to solve().  Its
+	 * filled squares become the fixed ones.
+	 * 
+	 * @param b board to load.
+	 */
+	public void setBoard(Board b) {
+		b.copyTo(board);
+		solverInitialize();
+	}
+
 	/**
 	 * @requires board has been created.
-	 * @return properly formatted String representing the 
-	 * current Sudoku board, i.e.: regex(([1-9],)^80,[1-9])
-	 */
-	private String boardToString() {
-		StringBuilder sBuilder = new StringBuilder();
-		for (int i = 0; i < SIZE; i++) {
-			for (int j = 0; j < SIZE; j++) {
-				sBuilder.append(board[i][j]);
-				if (j != SIZE - 1) {
-					sBuilder.append(',');
-				}
-			}
-			if (i != SIZE - 1) {
-				sBuilder.append(',');
+	 * @return the current Sudoku board.
+	 */
+	public Board toBoard() {
+		byte[] cells = new byte[SIZE * SIZE];
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				cells[x * SIZE + y] = (byte) board[x][y];
 			}
-
 		}
-		return sBuilder.toString();
+		return Board.wrap(cells);
 	}
 
 	/**
-	 * Generate Sudoku board.
+	 * Generate Sudoku board.  Starts from a random solved grid and takes
+	 * clues away while the solution stays unique, so the board is always
+	 * solvable.
 	 */
 	private void generateSudoku() {
 		Random r = new Random();
 		int b = r.nextInt(BONUS);
-		System.out.println("Generating board with " + (MIN + b)
-				+ " pre-set squares.");
-
-		//create MIN + b positions on our board
-		for (int k = 0; k < (MIN + b); k++) {
-			// pick a random square
-			int i = r.nextInt(SIZE);
-			int j = r.nextInt(SIZE);
-			// ensure we have yet to set this square
-			if (board[i][j] != 0) {
-				--k;	//don't forget to decrement k!
-				continue;
-			}
-			// pick random symbol
-			int symbol = r.nextInt(freesymbols.length);
-			if (freesymbols[symbol] > 0) {
-				// we have a free symbol, is it legal in this square?
-				if (legal(i, j, (symbol + 1))) {
+
+		if (generator == null) {
+			generator = new Generator(r);
+			generator.setMetrics(metrics);
+		}
+		setClues(generator.generate(MIN + b));
+	}
+
+	/**
+	 * Puts the clues of a puzzle on the empty board.
+	 * 
+	 * @param puzzle clues to place.
+	 */
+	private void setClues(Board puzzle) {
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				int symbol = puzzle.get(x, y);
+				if (symbol != 0) {
 					// remove symbol
-					freesymbols[symbol] -= 1;
+					freesymbols[symbol - 1] -= 1;
 					// put symbol on board
-					board[i][j] = symbol + 1;
-				} else {
-					--k;
+					setSquare(x, y, symbol);
 				}
-			} else {
-				// go back through the loop
-				--k;
 			}
 		}
 	}
@@ -140,6 +273,7 @@ public class SudokuModel {
 		for (int i = 0; i < freesymbols.length; i++) {
 			freesymbols[i] = SIZE;
 		}
+		masks.clear();
 
 		while ((x < SIZE) && (y < SIZE)) {
 			board[x][y] = 0;
@@ -180,80 +314,353 @@ public class SudokuModel {
 	 * @return true iff given change is legal.
 	 */
 	private boolean legal(int x, int y, int val) {
-		for (int i = 0; i < SIZE; i++) {
-			if (x == i) {
-				continue;
-			} else if ((board[i][y] == val)) {
-				return false;
-			}
+		return masks.legal(x, y, val);
+	}
+
+	/**
+	 * Puts val on the board at x,y, keeping the masks in step.
+	 * 
+	 * @param x
+	 *            row of the board.
+	 * @param y
+	 *            column of the board.
+	 * @param val
+	 *            value to put in board[x][y].
+	 */
+	private void setSquare(int x, int y, int val) {
+		board[x][y] = val;
+		masks.place(x, y, val);
+	}
+
+	/**
+	 * Empties the board at x,y, keeping the masks in step.
+	 * 
+	 * @param x
+	 *            row of the board.
+	 * @param y
+	 *            column of the board.
+	 */
+	private void clearSquare(int x, int y) {
+		board[x][y] = 0;
+		masks.remove(x, y);
+	}
+
+	/**
+	 * Create well formatted String representing solved Sudoku board.
+	 * 
+	 * @requires Sudoku has been generated.
+	 * @return If the board is solvable return value is a well formed Sudoku
+	 * String.  If not return value is null.
+	 */
+	public String solve() {
+		Board solved = solveBoard();
+		return (solved == null) ? null : solved.toString();
+	}
+
+	/**
+	 * Solves the current board.
+	 * 
+	 * @requires Sudoku has been generated.
+	 * @return the solved board, or null if the board is not solvable.
+	 */
+	public Board solveBoard() {
+		long start = System.nanoTime();
+		Board solved = solveAndCount();
+		if (metrics != null) {
+			recordSolve(System.nanoTime() - start);
 		}
+		return solved;
+	}
 
-		for (int i = 0; i < SIZE; i++) {
-			if (y == i) {
-				continue;
-			} else if (board[x][i] == val) {
-				return false;
+	/**
+	 * Solves the current board, counting the squares filled by propagation
+	 * and by search.
+	 * 
+	 * @return the solved board, or null if the board is not solvable.
+	 */
+	private Board solveAndCount() {
+		solverInitialize();
+		propagatedCount = 0;
+		searchedCount = 0;
+		engineFills = 0;
+		engineRan = false;
+		if (!propagate()) {
+			return null;
+		}
+
+		int emptySquares = 0;
+		for (int i = 0; i < freesymbols.length; i++) {
+			emptySquares += freesymbols[i];
+		}
+
+		boolean generatedGoodBoard;
+		if (engine == SolverEngine.BACKTRACKING) {
+			generatedGoodBoard = dfsSolve();
+		} else {
+			generatedGoodBoard = engineSolve();
+		}
+		
+		if (!generatedGoodBoard) {
+			return null;
+		}
+
+		if (engine != SolverEngine.BACKTRACKING) {
+			propagatedCount += engineFills;
+			emptySquares -= engineFills;
+		}
+		searchedCount = emptySquares;
+		return toBoard();
+	}
+
+	/**
+	 * Records the last solveBoard() in metrics, with the search counts of
+	 * the engines that keep them.  DANCING_LINKS, MOST_CONSTRAINED,
+	 * PROPAGATION and PARALLEL are not instrumented and record no nodes,
+	 * backtracks or depth, and neither does a solve that propagation
+	 * alone showed to be unsolvable.
+	 * 
+	 * @param nanos time the solve took.
+	 */
+	private void recordSolve(long nanos) {
+		if (engineRan && solver instanceof IterativeSolver) {
+			IterativeSolver s = (IterativeSolver) solver;
+			// the solver's count includes squares refilled after backtracks
+			metrics.recordSolve(nanos, s.getNodes(), s.getBacktracks(),
+					s.getMaxDepth(),
+					propagatedCount - engineFills + s.getPropagated());
+		} else if (engine == SolverEngine.BACKTRACKING) {
+			metrics.recordSolve(nanos, numIterations, dfsBacktracks,
+					dfsMaxDepth, propagatedCount);
+		} else {
+			metrics.recordSolve(nanos, 0, 0, 0, propagatedCount);
+		}
+	}
+
+	/**
+	 * Solves the current board within a budget.  Unlike solve(), the result
+	 * says whether the board was solved, cannot be solved, or ran out of
+	 * budget or was cancelled first.  The board is left solved only if the
+	 * result is SOLVED.
+	 * 
+	 * Only the ITERATIVE engine can stop on a budget, so this always solves
+	 * with an IterativeSolver whatever setEngine() chose.
+	 * 
+	 * @param budget time and node limits for the solve.
+	 * @param cancel token that stops the solve when raised, or null.
+	 * @return outcome of the solve.
+	 */
+	public SolveResult solve(SolveBudget budget, CancellationToken cancel) {
+		if (counter == null) {
+			counter = new IterativeSolver();
+		}
+		counter.setSearchListener(listener);
+		propagatedCount = 0;
+		searchedCount = 0;
+		int[] cells = boardToCells();
+		SolveResult result;
+		try {
+			result = counter.solve(cells, budget, cancel);
+		} finally {
+			counter.setSearchListener(null);
+		}
+		if (metrics != null) {
+			metrics.recordSolve(counter, result.getElapsedNanos());
+		}
+		if (result.isSolved()) {
+			int emptySquares = 0;
+			for (int val : cells) {
+				if (val == 0) {
+					++emptySquares;
+				}
 			}
+			propagatedCount = counter.getSolutionFills();
+			searchedCount = emptySquares - propagatedCount;
+			solverInitialize();
+			fillEmptySquares(result.getSolution());
 		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of squares the last successful solve() filled in
+	 * by propagating naked and hidden singles.
+	 * 
+	 * @return squares filled by propagation.
+	 */
+	public int getPropagatedCount() {
+		return propagatedCount;
+	}
 
-		// which grid are we in?
-		int gridx = 0;
-		int gridy = 0;
-
-		if (x < SMALL_GRID) {
-			// if x < SMALL_GRID (3) we are in 1st row of smaller grids
-			gridx = 0;
-		} else if ((x >= SMALL_GRID) && (x < (SMALL_GRID * 2))) {
-			gridx = 1;
-		} else if ((x >= (2 * SMALL_GRID)) && (x < (SIZE))) {
-			gridx = 2;
-		}
-
-		if (y < SMALL_GRID) {
-			// if x < SMALL_GRID (3) we are in 1st row of smaller grids
-			gridy = 0;
-		} else if ((y >= SMALL_GRID) && (y < (SMALL_GRID * 2))) {
-			gridy = 1;
-		} else if ((y >= (2 * SMALL_GRID)) && (y < (SIZE))) {
-			gridy = 2;
-		}
-
-		for (int i = gridx * SMALL_GRID; (i < ((gridx * SMALL_GRID) + SMALL_GRID)); i++) {
-			// checkstyle gives me issues if i don't make this for loop look
-			// stupid
-			for (int j = gridy * SMALL_GRID; 
-			(j < ((gridy * SMALL_GRID) + SMALL_GRID)); 
-			j++) {
-				// don't wanna check our grid square
-				if (!((i == x) && (j == y))) {
-					if (board[i][j] == val) {
-						// we've already got this value in our small grid!
+	/**
+	 * Returns the number of squares the last successful solve() filled in
+	 * by searching.
+	 * 
+	 * @return squares filled by search.
+	 */
+	public int getSearchedCount() {
+		return searchedCount;
+	}
+
+	/**
+	 * Fills in naked and hidden singles until none are left, so the search
+	 * only sees the squares that really need guessing.
+	 * 
+	 * @return false iff the board was found to be unsolvable.
+	 */
+	private boolean propagate() {
+		int n;
+		while ((n = Propagator.collect(masks, singles)) > 0) {
+			for (int i = 0; i < n; i++) {
+				int cell = Propagator.cellOf(singles[i]);
+				int val = Propagator.valueOf(singles[i]);
+				int x = cell / SIZE;
+				int y = cell % SIZE;
+				if (board[x][y] != 0) {
+					if (board[x][y] != val) {
 						return false;
 					}
+					continue;
+				}
+				if (!legal(x, y, val)) {
+					return false;
+				}
+				setSquare(x, y, val);
+				freesymbols[val - 1] -= 1;
+				++propagatedCount;
+				if (listener != null) {
+					listener.onPropagate(cell, val);
 				}
 			}
 		}
-		// no rules broken!
+		return n == 0;
+	}
+
+	/**
+	 * Solves the board with the selected engine rather than dfsSolve(),
+	 * noting how many squares of the solution the engine propagated.
+	 * 
+	 * @return true iff the board was solved.
+	 */
+	private boolean engineSolve() {
+		if (solver == null) {
+			solver = createSolver(engine);
+			if (solver instanceof IterativeSolver) {
+				((IterativeSolver) solver).setSearchListener(listener);
+			}
+		}
+
+		int[] cells = boardToCells();
+		engineRan = true;
+		if (solver instanceof ParallelSolver) {
+			engineFills = ((ParallelSolver) solver).solveCountingFills(cells);
+			if (engineFills < 0) {
+				engineFills = 0;
+				return false;
+			}
+		} else if (!solver.solve(cells)) {
+			return false;
+		} else if (solver instanceof IterativeSolver) {
+			engineFills = ((IterativeSolver) solver).getSolutionFills();
+		} else if (solver instanceof MrvSolver) {
+			engineFills = ((MrvSolver) solver).getPropagatedCount();
+		}
+
+		fillEmptySquares(cells);
 		return true;
 	}
 
 	/**
-	 * Create well formatted String representing solved Sudoku board.
+	 * Copies a solution into the empty squares of the board.
 	 * 
-	 * @requires Sudoku has been generated.
-	 * @return If the board is solvable return value is a well formed Sudoku
-	 * String.  If not return value is null.
+	 * @param cells row-major solution of the current board.
 	 */
-	public String solve() {
+	private void fillEmptySquares(int[] cells) {
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (board[x][y] == 0) {
+					setSquare(x, y, cells[x * SIZE + y]);
+					freesymbols[board[x][y] - 1] -= 1;
+				}
+			}
+		}
+	}
 
-		solverInitialize(boardToString());
-		boolean generatedGoodBoard = dfsSolve();
-		
-		if (!generatedGoodBoard) {
-			return null;
+	/**
+	 * Counts the solutions of the current board, stopping once limit of
+	 * them have been found.  countSolutions(2) == 1 iff the board has a
+	 * unique solution.
+	 * 
+	 * @param limit number of solutions after which to stop, at least 1.
+	 * @return number of solutions found, at most limit.
+	 */
+	public int countSolutions(int limit) {
+		if (counter == null) {
+			counter = new IterativeSolver();
 		}
+		return counter.countSolutions(boardToCells(), limit);
+	}
 
-		return boardToString();
+	/**
+	 * Rates the current board by the hardest technique a person needs to
+	 * solve it.
+	 * 
+	 * @return difficulty of the board, or null if it cannot be solved.
+	 */
+	public Difficulty grade() {
+		if (grader == null) {
+			grader = new Grader();
+		}
+		return grader.grade(toBoard());
+	}
+
+	/**
+	 * Returns a fingerprint of the current board that is the same for every
+	 * board equivalent to it under relabelling, row, column, band and stack
+	 * permutations and transposition, for spotting duplicates.
+	 * 
+	 * @return 64-bit fingerprint of the canonical form of the board.
+	 */
+	public long fingerprint() {
+		if (canonicalizer == null) {
+			canonicalizer = new Canonicalizer();
+		}
+		return canonicalizer.fingerprint(toBoard());
+	}
+
+	/**
+	 * @return the current board as a row-major array.
+	 */
+	private int[] boardToCells() {
+		int[] cells = new int[SIZE * SIZE];
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				cells[x * SIZE + y] = board[x][y];
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Creates the Solver behind an engine.
+	 * 
+	 * @param e engine other than BACKTRACKING.
+	 * @return a new Solver.
+	 */
+	private static Solver createSolver(SolverEngine e) {
+		switch (e) {
+		case DANCING_LINKS:
+			return new DlxSolver();
+		case MOST_CONSTRAINED:
+			return new MrvSolver();
+		case PROPAGATION:
+			return new MrvSolver(true);
+		case ITERATIVE:
+			return new IterativeSolver();
+		case PARALLEL:
+			return new ParallelSolver();
+		default:
+			throw new IllegalArgumentException("No solver for " + e);
+		}
 	}
 
 	/**
@@ -265,7 +672,7 @@ public class SudokuModel {
 
 		++numIterations;
 		
-		if (numIterations > MAX_ITERATIONS) {
+		if (numIterations > maxIterations) {
 			return false;
 		}
 
@@ -290,59 +697,69 @@ public class SudokuModel {
 					// remove symbol
 					freesymbols[k] -= 1;
 					// put symbol on board
-					board[i][j] = k + 1;
+					setSquare(i, j, k + 1);
+					if (++guesses > dfsMaxDepth) {
+						dfsMaxDepth = guesses;
+					}
+					if (listener != null) {
+						listener.onPlace(i * SIZE + j, k + 1, guesses);
+					}
 					if (dfsSolve()) {
-						return numIterations < MAX_ITERATIONS;
+						return numIterations < maxIterations;
 					} else {
 						// put symbol back b/c soln sucked
 						freesymbols[k] += 1;
+						clearSquare(i, j);
+						--guesses;
+						++dfsBacktracks;
+						if (listener != null) {
+							listener.onBacktrack(i * SIZE + j, guesses);
+						}
 					}
 				}
 			}
 		}
 
 		if (solved()) {
+			if (listener != null) {
+				listener.onSolution(boardToCells());
+			}
 			return true;
 		}
 
-		// clear the square
-		board[i][j] = 0;
 		return false;
 	}
 
 	/**
-	 * Solves a given Sudoku board if possible.
-	 * 
-	 * @param sBoard - properly formatted String representing Sudoku Board.
+	 * Prepares the current board for solving: its filled squares become
+	 * the fixed ones and the masks and free symbols are rebuilt from them.
 	 */
-	private void solverInitialize(String sBoard) {
+	private void solverInitialize() {
 
-		int x = 0;
-		int y = 0;
+		// every solve gets the full iteration budget
+		numIterations = 0;
+		guesses = 0;
+		dfsBacktracks = 0;
+		dfsMaxDepth = 0;
 
 		// init symbols
 		for (int i = 0; i < freesymbols.length; i++) {
 			freesymbols[i] = SIZE;
 		}
+		masks.clear();
 
-		StringTokenizer strtok = new StringTokenizer(sBoard, ",");
-		while (strtok.hasMoreTokens()) {
-			board[x][y] = Integer.parseInt(strtok.nextToken());
-			if (board[x][y] == 0) {
-				// this position was not initial set, so it's not fixed
-				fixed[x][y] = false;
-
-			} else {
-				fixed[x][y] = true;
-				// this symbol is now taken up once
-				freesymbols[board[x][y] - 1] -= 1;
-			}
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (board[x][y] == 0) {
+					// this position was not initial set, so it's not fixed
+					fixed[x][y] = false;
 
-			if (y == (SIZE - 1)) {
-				y = 0;
-				++x;
-			} else {
-				++y;
+				} else {
+					fixed[x][y] = true;
+					masks.place(x, y, board[x][y]);
+					// this symbol is now taken up once
+					freesymbols[board[x][y] - 1] -= 1;
+				}
 			}
 		}
 
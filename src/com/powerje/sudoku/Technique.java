@@ -0,0 +1,61 @@
+package com.powerje.sudoku;
+
+/**
+ * Solving techniques the Grader knows, easiest first.
+ */
+public enum Technique {
+	/** A square with one candidate left. */
+	NAKED_SINGLE(Difficulty.EASY),
+
+	/** A symbol with one place left in a row, column or box. */
+	HIDDEN_SINGLE(Difficulty.EASY),
+
+	/** A symbol of a box confined to one line, or of a line to one box. */
+	LOCKED_CANDIDATES(Difficulty.MEDIUM),
+
+	/** Two squares of a unit with the same two candidates. */
+	NAKED_PAIR(Difficulty.MEDIUM),
+
+	/** Two symbols with the same two places in a unit. */
+	HIDDEN_PAIR(Difficulty.MEDIUM),
+
+	/** Three squares of a unit with three candidates between them. */
+	NAKED_TRIPLE(Difficulty.HARD),
+
+	/** Three symbols with three places between them in a unit. */
+	HIDDEN_TRIPLE(Difficulty.HARD),
+
+	/** A symbol confined to the same two columns in two rows, or back. */
+	X_WING(Difficulty.HARD),
+
+	/** A two-candidate square and two two-candidate peers it pins down. */
+	XY_WING(Difficulty.HARD),
+
+	/** A symbol confined to the same three columns in three rows, or back. */
+	SWORDFISH(Difficulty.EXPERT),
+
+	/** Two-colouring the chains of a symbol's conjugate pairs. */
+	SIMPLE_COLORING(Difficulty.EXPERT),
+
+	/** None of the above is enough; guessing is needed. */
+	TRIAL_AND_ERROR(Difficulty.DIABOLICAL);
+
+	/** Band of puzzles for which this is the hardest technique. */
+	private final Difficulty difficulty;
+
+	/**
+	 * Constructor for Technique.
+	 *
+	 * @param difficulty band of puzzles needing this technique.
+	 */
+	Technique(Difficulty difficulty) {
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * @return band of puzzles for which this is the hardest technique.
+	 */
+	public Difficulty difficulty() {
+		return difficulty;
+	}
+}
@@ -0,0 +1,132 @@
+package com.powerje.sudoku;
+
+import java.util.Random;
+
+/**
+ * Makes new puzzles from old ones with the transformations that keep a
+ * Sudoku valid: relabelling the digits, permuting the rows within each
+ * band and the bands themselves, the same for columns and stacks, and
+ * transposing.  A transformed puzzle has the same number of solutions and
+ * needs the same techniques, so it is as hard as the original, and it
+ * costs a table lookup per square.
+ *
+ * An instance must not be shared between threads.
+ */
+public final class Transformer {
+	/** Number of squares on the board. */
+	private static final int CELLS = BitBoard.CELLS;
+
+	/** Large grid size. */
+	private static final int SIZE = BitBoard.SIZE;
+
+	/** Small grid size. */
+	private static final int SMALL_GRID = BitBoard.SMALL_GRID;
+
+	/** Source of randomness. */
+	private final Random random;
+
+	/** Square of the original that lands on each square, by cell index. */
+	private final int[] cellMap = new int[CELLS];
+
+	/** New digit for each digit, 0 staying 0. */
+	private final int[] relabel = new int[SIZE + 1];
+
+	/**
+	 * Constructor for Transformer, starting out as the identity.
+	 *
+	 * @param random source of randomness.
+	 */
+	public Transformer(Random random) {
+		this.random = random;
+		for (int cell = 0; cell < CELLS; cell++) {
+			cellMap[cell] = cell;
+		}
+		for (int val = 0; val <= SIZE; val++) {
+			relabel[val] = val;
+		}
+	}
+
+	/**
+	 * Picks a new random transformation for apply() to use.
+	 */
+	public void shuffle() {
+		int[] rows = lineOrder();
+		int[] cols = lineOrder();
+		boolean transpose = random.nextBoolean();
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				int from = rows[x] * SIZE + cols[y];
+				if (transpose) {
+					from = cols[y] * SIZE + rows[x];
+				}
+				cellMap[x * SIZE + y] = from;
+			}
+		}
+
+		int[] digits = shuffled(SIZE);
+		for (int val = 1; val <= SIZE; val++) {
+			relabel[val] = digits[val - 1] + 1;
+		}
+	}
+
+	/**
+	 * Applies the current transformation to a board.
+	 *
+	 * @param b board to transform.
+	 * @return the transformed board.
+	 */
+	public Board apply(Board b) {
+		byte[] cells = new byte[CELLS];
+		for (int cell = 0; cell < CELLS; cell++) {
+			cells[cell] = (byte) relabel[b.get(cellMap[cell])];
+		}
+		return Board.wrap(cells);
+	}
+
+	/**
+	 * Picks a new random transformation and applies it to a puzzle and its
+	 * solution alike.
+	 *
+	 * @param p puzzle to transform.
+	 * @return the transformed puzzle, with the same rating.
+	 */
+	public Puzzle transform(Puzzle p) {
+		shuffle();
+		return new Puzzle(apply(p.getPuzzle()), apply(p.getSolution()),
+				p.getRating());
+	}
+
+	/**
+	 * @return a random order of the rows (or columns) that keeps each band
+	 * (or stack) together.
+	 */
+	private int[] lineOrder() {
+		int[] bands = shuffled(SMALL_GRID);
+		int[] order = new int[SIZE];
+		for (int b = 0; b < SMALL_GRID; b++) {
+			int[] lines = shuffled(SMALL_GRID);
+			for (int i = 0; i < SMALL_GRID; i++) {
+				order[b * SMALL_GRID + i] = bands[b] * SMALL_GRID + lines[i];
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * @param n number of values.
+	 * @return 0 to n - 1 in random order.
+	 */
+	private int[] shuffled(int n) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = values[i];
+			values[i] = values[j];
+			values[j] = t;
+		}
+		return values;
+	}
+}
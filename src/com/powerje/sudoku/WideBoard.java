@@ -0,0 +1,142 @@
+package com.powerje.sudoku;
+
+/**
+ * BitBoard for any Geometry.  Row, column and box candidate masks are
+ * longs, so boards of up to 64 symbols (16x16, 25x25, 36x36 and beyond)
+ * get the same single-AND legality check as the 9x9 engine.
+ *
+ * Squares are addressed by cell index row * size + column.  Bit (val - 1)
+ * of a mask is set iff val is still free in that row, column or box.
+ */
+public final class WideBoard {
+	/** Shape of the board. */
+	private final Geometry geometry;
+
+	/** Value at each cell index, 0 when empty. */
+	private final int[] cells;
+
+	/** Free symbols of each row. */
+	private final long[] rowFree;
+
+	/** Free symbols of each column. */
+	private final long[] colFree;
+
+	/** Free symbols of each box. */
+	private final long[] boxFree;
+
+	/**
+	 * Constructor for WideBoard, starts out empty.
+	 *
+	 * @param geometry shape of the board.
+	 */
+	public WideBoard(Geometry geometry) {
+		this.geometry = geometry;
+		cells = new int[geometry.cells()];
+		rowFree = new long[geometry.size()];
+		colFree = new long[geometry.size()];
+		boxFree = new long[geometry.size()];
+		clear();
+	}
+
+	/**
+	 * @return shape of the board.
+	 */
+	public Geometry geometry() {
+		return geometry;
+	}
+
+	/**
+	 * Empties every square of the board.
+	 */
+	public void clear() {
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = 0;
+		}
+		long all = geometry.all();
+		for (int i = 0; i < rowFree.length; i++) {
+			rowFree[i] = all;
+			colFree[i] = all;
+			boxFree[i] = all;
+		}
+	}
+
+	/**
+	 * Returns the value at the given cell index.
+	 *
+	 * @param cell index of the square.
+	 * @return value of the square, 0 if empty.
+	 */
+	public int get(int cell) {
+		return cells[cell];
+	}
+
+	/**
+	 * Returns the mask of values that could legally go in the given cell.
+	 *
+	 * @param cell index of the square.
+	 * @return candidate mask, bit (val - 1) set iff val is legal.
+	 */
+	public long candidates(int cell) {
+		return rowFree[geometry.rowOf[cell]] & colFree[geometry.colOf[cell]]
+				& boxFree[geometry.boxOf[cell]];
+	}
+
+	/**
+	 * Returns the mask of values not yet placed in a unit.
+	 *
+	 * @param unit index into Geometry.units: rows, then columns, then boxes.
+	 * @return free mask, bit (val - 1) set iff val is free in the unit.
+	 */
+	public long free(int unit) {
+		int size = geometry.size();
+		if (unit < size) {
+			return rowFree[unit];
+		} else if (unit < 2 * size) {
+			return colFree[unit - size];
+		}
+		return boxFree[unit - 2 * size];
+	}
+
+	/**
+	 * Returns true iff val is free in the row, column and box of the cell.
+	 *
+	 * @param cell index of the square.
+	 * @param val value to put in the square.
+	 * @return true iff given change is legal.
+	 */
+	public boolean legal(int cell, int val) {
+		return (candidates(cell) & (1L << (val - 1))) != 0;
+	}
+
+	/**
+	 * Puts val in the given cell and takes it out of its row, column and box.
+	 *
+	 * @requires cell is empty and legal(cell, val).
+	 * @param cell index of the square.
+	 * @param val value to place.
+	 */
+	public void place(int cell, int val) {
+		long bit = ~(1L << (val - 1));
+		cells[cell] = val;
+		rowFree[geometry.rowOf[cell]] &= bit;
+		colFree[geometry.colOf[cell]] &= bit;
+		boxFree[geometry.boxOf[cell]] &= bit;
+	}
+
+	/**
+	 * Empties the given cell and frees its value again.
+	 *
+	 * @param cell index of the square.
+	 */
+	public void remove(int cell) {
+		int val = cells[cell];
+		if (val == 0) {
+			return;
+		}
+		long bit = 1L << (val - 1);
+		cells[cell] = 0;
+		rowFree[geometry.rowOf[cell]] |= bit;
+		colFree[geometry.colOf[cell]] |= bit;
+		boxFree[geometry.boxOf[cell]] |= bit;
+	}
+}
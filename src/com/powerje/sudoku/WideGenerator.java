@@ -0,0 +1,162 @@
+package com.powerje.sudoku;
+
+import java.util.Random;
+
+/**
+ * Generates puzzles of any Geometry.  A random complete grid is built
+ * first, by filling the boxes on the diagonal (which cannot clash) and
+ * letting a randomized WideSolver complete the rest.  Clues are then taken
+ * away in random order, keeping only removals after which the puzzle still
+ * has one solution, until the target clue count is reached or every
+ * square has been tried.
+ *
+ * Every search is capped by a node limit, and filling a grid by a number
+ * of attempts, so the time a generate() takes is bounded by the number of
+ * squares.  A uniqueness check that hits the cap keeps its clue, so
+ * puzzles are never ambiguous, only sometimes left with more clues than
+ * asked for.
+ *
+ * generate() runs on the caller's thread and takes tens of milliseconds
+ * for 16x16 boards and a few hundred for 25x25 and 36x36.  Digging this
+ * way bottoms out at roughly 37% of the squares as clues on 16x16, 43% on
+ * 25x25 and 47% on 36x36; asking for fewer gets that many.
+ */
+public final class WideGenerator {
+	/** Nodes allowed for filling a grid, per square of the board. */
+	private static final int FILL_NODES_PER_CELL = 4;
+
+	/**
+	 * Starts tried before fillGrid() gives up.  Even 4x4 boards, whose
+	 * starts fail most often, rarely need more than ten.
+	 */
+	private static final int MAX_FILL_ATTEMPTS = 64;
+
+	/**
+	 * Nodes allowed per uniqueness check, at least 2 so a puzzle that
+	 * propagation solves outright passes.  Removals that can be proven at
+	 * all are nearly always proven in a few nodes.  A bigger limit costs
+	 * time without saving clues: a clue kept because its check ran long
+	 * makes later checks easier, so digging ends at about the same count.
+	 */
+	private static final int CHECK_NODES = 8;
+
+	/** Shape of the generated boards. */
+	private final Geometry geometry;
+
+	/** Source of randomness. */
+	private final Random random;
+
+	/** Solver used to fill grids and check uniqueness. */
+	private final WideSolver solver;
+
+	/** Solution of the last generated puzzle. */
+	private final int[] solution;
+
+	/**
+	 * Constructor for WideGenerator.
+	 *
+	 * @param geometry shape of the boards to generate.
+	 * @param random source of randomness.
+	 */
+	public WideGenerator(Geometry geometry, Random random) {
+		this.geometry = geometry;
+		this.random = random;
+		this.solver = new WideSolver(geometry);
+		this.solution = new int[geometry.cells()];
+	}
+
+	/**
+	 * Generates a puzzle with a unique solution.
+	 *
+	 * @param clues number of clues to aim for.
+	 * @return row-major puzzle, 0 for empty squares.
+	 * @throws IllegalStateException if no complete grid was found within
+	 * MAX_FILL_ATTEMPTS starts.
+	 */
+	public int[] generate(int clues) {
+		fillGrid();
+		int[] puzzle = solution.clone();
+		int remaining = puzzle.length;
+
+		int[] order = shuffledCells();
+		solver.setRandom(null);
+		solver.setNodeLimit(CHECK_NODES);
+		for (int i = 0; i < order.length && remaining > clues; i++) {
+			int cell = order[i];
+			int val = puzzle[cell];
+			puzzle[cell] = 0;
+			if (solver.countSolutions(puzzle, 2) == 1
+					&& !solver.hitNodeLimit()) {
+				--remaining;
+			} else {
+				puzzle[cell] = val;
+			}
+		}
+		return puzzle;
+	}
+
+	/**
+	 * Returns the solution of the last generated puzzle.
+	 *
+	 * @return row-major solved board, a copy.
+	 */
+	public int[] getSolution() {
+		return solution.clone();
+	}
+
+	/**
+	 * Fills solution with a random complete grid, retrying on the rare
+	 * start that the randomized search cannot finish within its limit.
+	 *
+	 * @throws IllegalStateException if MAX_FILL_ATTEMPTS starts all failed.
+	 */
+	private void fillGrid() {
+		int size = geometry.size();
+		int box = geometry.boxSize();
+		solver.setRandom(random);
+		solver.setNodeLimit((long) FILL_NODES_PER_CELL * geometry.cells());
+		for (int attempt = 0; attempt < MAX_FILL_ATTEMPTS; attempt++) {
+			for (int i = 0; i < solution.length; i++) {
+				solution[i] = 0;
+			}
+			// boxes on the diagonal share no row or column
+			for (int b = 0; b < box; b++) {
+				int[] symbols = shuffled(size);
+				int[] cells = geometry.units[2 * size + b * (box + 1)];
+				for (int i = 0; i < size; i++) {
+					solution[cells[i]] = symbols[i] + 1;
+				}
+			}
+			if (solver.solve(solution)) {
+				return;
+			}
+		}
+		throw new IllegalStateException("No " + size + "x" + size
+				+ " grid found in " + MAX_FILL_ATTEMPTS + " attempts");
+	}
+
+	/**
+	 * @return the cell indexes of the board in random order.
+	 */
+	private int[] shuffledCells() {
+		return shuffled(geometry.cells());
+	}
+
+	/**
+	 * @param n number of values.
+	 * @return 0 to n - 1 in random order.
+	 */
+	private int[] shuffled(int n) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = values[i];
+			values[i] = values[j];
+			values[j] = t;
+		}
+		return values;
+	}
+}
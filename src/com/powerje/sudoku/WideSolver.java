@@ -0,0 +1,546 @@
+package com.powerje.sudoku;
+
+import java.util.Random;
+
+/**
+ * IterativeSolver for any Geometry: most-constrained-square search with
+ * naked and hidden singles, run off an explicit stack over a WideBoard.
+ * Used for 16x16 and larger boards, where the 9x9 int tables do not apply.
+ *
+ * Singles are found incrementally rather than by rescanning the board.
+ * Besides the masks, the solver keeps for every unit and symbol a mask of
+ * the squares of the unit the symbol can still go in.  Placing a symbol
+ * reads the peers that lose it straight off those masks, and any square
+ * it leaves with one candidate, or symbol it leaves with one home in a
+ * unit, goes on a queue that propagation drains.  The peers are kept on a
+ * stack, so emptying the square again touches only them.
+ *
+ * Candidates can be tried in random order, which WideGenerator uses to
+ * fill empty boards, and a node limit keeps any one search bounded.
+ * An instance can be reused but must not be shared between threads.
+ */
+public final class WideSolver {
+	/** Shape of the boards solved. */
+	private final Geometry geometry;
+
+	/** Number of squares on the board. */
+	private final int cellCount;
+
+	/** Masks of the board being solved. */
+	private final WideBoard board;
+
+	/** Square branched on at each depth. */
+	private final int[] nodeCell;
+
+	/** Symbols still to try at each depth. */
+	private final long[] nodeOptions;
+
+	/** Trail height on entry to each depth. */
+	private final int[] nodeMark;
+
+	/** Squares filled by propagation, in order, so they can be undone. */
+	private final int[] trail;
+
+	/** Number of squares on the trail. */
+	private int trailTop;
+
+	/** Number of empty squares left. */
+	private int empty;
+
+	/** Number of symbols, also the number of squares of a unit. */
+	private final int size;
+
+	/**
+	 * Empty squares of each unit each symbol can still go in, indexed
+	 * unit * size + val - 1.  Bit i stands for Geometry.units[unit][i].
+	 */
+	private final long[] homes;
+
+	/** Position of each square within its box in Geometry.units. */
+	private final int[] boxPos;
+
+	/** Squares found forced and not yet filled, in order found. */
+	private final int[] queue;
+
+	/** Index in queue of the next square to fill. */
+	private int queueHead;
+
+	/** Number of squares put on the queue. */
+	private int queueTail;
+
+	/** Symbol each queued square is forced to, 0 if not queued. */
+	private final int[] forced;
+
+	/** true once a square or a unit was found to have no way left. */
+	private boolean conflict;
+
+	/**
+	 * Peers each filled square took its symbol from, followed by their
+	 * number, so the square can be emptied in reverse.
+	 */
+	private final int[] lost;
+
+	/** Height of the lost stack. */
+	private int lostTop;
+
+	/** First two solutions found by the last search. */
+	private final int[][] solutions;
+
+	/** Source of the candidate order, null to try symbols in order. */
+	private Random random;
+
+	/** Nodes a search may visit. */
+	private long nodeLimit = Long.MAX_VALUE;
+
+	/** Nodes visited by the last search. */
+	private long nodes;
+
+	/**
+	 * Constructor for WideSolver.
+	 *
+	 * @param geometry shape of the boards to solve.
+	 */
+	public WideSolver(Geometry geometry) {
+		this.geometry = geometry;
+		cellCount = geometry.cells();
+		board = new WideBoard(geometry);
+		size = geometry.size();
+		homes = new long[geometry.unitCount() * size];
+		boxPos = new int[cellCount];
+		for (int b = 0; b < size; b++) {
+			int[] unit = geometry.units[2 * size + b];
+			for (int i = 0; i < size; i++) {
+				boxPos[unit[i]] = i;
+			}
+		}
+		queue = new int[cellCount];
+		forced = new int[cellCount];
+		// a square loses each candidate at most once on the way down
+		lost = new int[cellCount * (size + 1)];
+		nodeCell = new int[cellCount + 1];
+		nodeOptions = new long[cellCount + 1];
+		nodeMark = new int[cellCount + 1];
+		trail = new int[cellCount];
+		solutions = new int[2][cellCount];
+	}
+
+	/**
+	 * @return shape of the boards solved.
+	 */
+	public Geometry geometry() {
+		return geometry;
+	}
+
+	/**
+	 * Makes the search try candidates in random order.
+	 *
+	 * @param r source of the order, or null to try symbols in order.
+	 */
+	public void setRandom(Random r) {
+		random = r;
+	}
+
+	/**
+	 * Bounds the number of nodes any one search may visit.
+	 *
+	 * @param limit node limit, Long.MAX_VALUE for none.
+	 */
+	public void setNodeLimit(long limit) {
+		nodeLimit = limit;
+	}
+
+	/**
+	 * @return true iff the last search stopped because it hit the node
+	 * limit, in which case its count is only a lower bound.
+	 */
+	public boolean hitNodeLimit() {
+		return nodes >= nodeLimit;
+	}
+
+	/**
+	 * Fills in the empty squares of the given board.
+	 *
+	 * @param cells row-major board, 0 for empty squares.  Holds the
+	 * solution when this returns true and is left untouched otherwise.
+	 * @return true iff the board was solved.
+	 */
+	public boolean solve(int[] cells) {
+		if (countSolutions(cells, 1) == 0) {
+			return false;
+		}
+		copySolution(0, cells);
+		return true;
+	}
+
+	/**
+	 * Counts the solutions of a board, stopping as soon as limit of them
+	 * have been found or the node limit is hit.
+	 *
+	 * @param cells row-major board, 0 for empty squares, left unchanged.
+	 * @param limit number of solutions after which to stop, at least 1.
+	 * @return number of solutions found, at most limit.
+	 */
+	public int countSolutions(int[] cells, int limit) {
+		nodes = 0;
+		if (!load(cells)) {
+			return 0;
+		}
+
+		int found = 0;
+		int depth = 0;
+		boolean descending = true;
+		while (true) {
+			if (descending) {
+				if (nodes >= nodeLimit) {
+					return found;
+				}
+				++nodes;
+				nodeMark[depth] = trailTop;
+				nodeOptions[depth] = 0;
+				if (propagate()) {
+					if (empty == 0) {
+						if (found < solutions.length) {
+							for (int cell = 0; cell < cellCount; cell++) {
+								solutions[found][cell] = board.get(cell);
+							}
+						}
+						if (++found >= limit) {
+							return found;
+						}
+					} else {
+						int best = mostConstrained();
+						nodeCell[depth] = best;
+						nodeOptions[depth] = board.candidates(best);
+					}
+				}
+			}
+
+			long options = nodeOptions[depth];
+			if (options == 0) {
+				// nothing left to try here, back up a level
+				undo(nodeMark[depth]);
+				if (depth == 0) {
+					return found;
+				}
+				--depth;
+				unassign(nodeCell[depth]);
+				descending = false;
+				continue;
+			}
+
+			long bit = pick(options);
+			nodeOptions[depth] = options ^ bit;
+			assign(nodeCell[depth], Long.numberOfTrailingZeros(bit) + 1);
+			++depth;
+			descending = true;
+		}
+	}
+
+	/**
+	 * Copies out one of the solutions found by the last countSolutions.
+	 *
+	 * @param n 0 for the first solution found, 1 for the second.
+	 * @param out receives the row-major solved board.
+	 */
+	public void copySolution(int n, int[] out) {
+		System.arraycopy(solutions[n], 0, out, 0, cellCount);
+	}
+
+	/**
+	 * Picks the next candidate to try.
+	 *
+	 * @param options candidates not yet tried, not 0.
+	 * @return the bit of the candidate to try.
+	 */
+	private long pick(long options) {
+		if (random == null) {
+			return options & -options;
+		}
+		int skip = random.nextInt(Long.bitCount(options));
+		for (int i = 0; i < skip; i++) {
+			options &= options - 1;
+		}
+		return options & -options;
+	}
+
+	/**
+	 * Resets the board to the given cells, marks the homes of every
+	 * symbol and queues the singles the clues already force.
+	 *
+	 * @param cells row-major board, 0 for empty squares.
+	 * @return false iff two clues clash.
+	 */
+	private boolean load(int[] cells) {
+		clearQueue();
+		board.clear();
+		trailTop = 0;
+		lostTop = 0;
+		empty = 0;
+		for (int cell = 0; cell < cellCount; cell++) {
+			int val = cells[cell];
+			if (val == 0) {
+				++empty;
+			} else if (board.legal(cell, val)) {
+				board.place(cell, val);
+			} else {
+				return false;
+			}
+		}
+
+		for (int i = 0; i < homes.length; i++) {
+			homes[i] = 0;
+		}
+		for (int cell = 0; cell < cellCount; cell++) {
+			if (board.get(cell) != 0) {
+				continue;
+			}
+			long options = board.candidates(cell);
+			for (long o = options; o != 0; o &= o - 1) {
+				enter(cell, Long.numberOfTrailingZeros(o));
+			}
+			checkSquare(cell, options);
+		}
+		for (int u = 0; u < geometry.unitCount(); u++) {
+			for (long o = board.free(u); o != 0; o &= o - 1) {
+				checkHomes(u, Long.numberOfTrailingZeros(o));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the empty square with the fewest legal symbols.
+	 *
+	 * @requires at least one square is empty.
+	 * @return cell index of the most constrained square.
+	 */
+	private int mostConstrained() {
+		int best = -1;
+		int fewest = Integer.MAX_VALUE;
+		for (int cell = 0; cell < cellCount && fewest > 2; cell++) {
+			if (board.get(cell) == 0) {
+				int n = Long.bitCount(board.candidates(cell));
+				if (n < fewest) {
+					best = cell;
+					fewest = n;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Fills in the queued naked and hidden singles, and those they force in
+	 * turn, until there are none left, recording each one on the trail.
+	 * The queue is empty afterwards either way.
+	 *
+	 * @return false iff the board was found to be unsolvable.
+	 */
+	private boolean propagate() {
+		while (!conflict && queueHead < queueTail) {
+			int cell = queue[queueHead++];
+			int val = forced[cell];
+			forced[cell] = 0;
+			if (!board.legal(cell, val)) {
+				// a peer was forced to the same symbol
+				conflict = true;
+			} else {
+				assign(cell, val);
+				trail[trailTop++] = cell;
+			}
+		}
+		boolean solvable = !conflict;
+		clearQueue();
+		return solvable;
+	}
+
+	/**
+	 * Empties the queue and forgets any conflict found.
+	 */
+	private void clearQueue() {
+		while (queueHead < queueTail) {
+			forced[queue[queueHead++]] = 0;
+		}
+		queueHead = 0;
+		queueTail = 0;
+		conflict = false;
+	}
+
+	/**
+	 * Places a symbol, updates the homes of every symbol it affects and
+	 * queues the singles that result.
+	 *
+	 * @param cell index of an empty square.
+	 * @param val symbol to place, legal in the square.
+	 */
+	private void assign(int cell, int val) {
+		int v = val - 1;
+		int row = geometry.rowOf[cell];
+		int col = size + geometry.colOf[cell];
+		int box = 2 * size + geometry.boxOf[cell];
+
+		// the square is no longer a home for any of its candidates
+		long options = board.candidates(cell);
+		board.place(cell, val);
+		--empty;
+		for (long o = options; o != 0; o &= o - 1) {
+			int s = Long.numberOfTrailingZeros(o);
+			leave(cell, s);
+			if (s != v) {
+				checkHomes(row, s);
+				checkHomes(col, s);
+				checkHomes(box, s);
+			}
+		}
+
+		// and the peers that could have taken val lose it
+		int first = lostTop;
+		take(row, v);
+		take(col, v);
+		take(box, v);
+		int last = lostTop;
+		lost[lostTop++] = last - first;
+		for (int i = first; i < last; i++) {
+			int p = lost[i];
+			checkSquare(p, board.candidates(p));
+			int pRow = geometry.rowOf[p];
+			int pCol = size + geometry.colOf[p];
+			int pBox = 2 * size + geometry.boxOf[p];
+			if (pRow != row) {
+				checkHomes(pRow, v);
+			}
+			if (pCol != col) {
+				checkHomes(pCol, v);
+			}
+			if (pBox != box) {
+				checkHomes(pBox, v);
+			}
+		}
+	}
+
+	/**
+	 * Takes a symbol away from every square of a unit it could still go in,
+	 * pushing those squares on the lost stack.
+	 *
+	 * @param u index into Geometry.units.
+	 * @param s symbol - 1.
+	 */
+	private void take(int u, int s) {
+		int[] unit = geometry.units[u];
+		for (long m = homes[u * size + s]; m != 0; m &= m - 1) {
+			int p = unit[Long.numberOfTrailingZeros(m)];
+			leave(p, s);
+			lost[lostTop++] = p;
+		}
+	}
+
+	/**
+	 * Empties a square filled by assign(), undoing its updates to the
+	 * homes.  Squares must be emptied in the reverse order of filling.
+	 *
+	 * @param cell index of a filled square.
+	 */
+	private void unassign(int cell) {
+		int v = board.get(cell) - 1;
+		board.remove(cell);
+		++empty;
+
+		for (int n = lost[--lostTop]; n > 0; n--) {
+			enter(lost[--lostTop], v);
+		}
+		for (long o = board.candidates(cell); o != 0; o &= o - 1) {
+			enter(cell, Long.numberOfTrailingZeros(o));
+		}
+	}
+
+	/**
+	 * Marks a square as a home of a symbol in its row, column and box.
+	 *
+	 * @param cell index of an empty square.
+	 * @param s symbol - 1.
+	 */
+	private void enter(int cell, int s) {
+		homes[geometry.rowOf[cell] * size + s] |= 1L << geometry.colOf[cell];
+		homes[(size + geometry.colOf[cell]) * size + s] |=
+				1L << geometry.rowOf[cell];
+		homes[(2 * size + geometry.boxOf[cell]) * size + s] |=
+				1L << boxPos[cell];
+	}
+
+	/**
+	 * Unmarks a square as a home of a symbol in its row, column and box.
+	 *
+	 * @param cell index of a square.
+	 * @param s symbol - 1.
+	 */
+	private void leave(int cell, int s) {
+		homes[geometry.rowOf[cell] * size + s] &= ~(1L << geometry.colOf[cell]);
+		homes[(size + geometry.colOf[cell]) * size + s] &=
+				~(1L << geometry.rowOf[cell]);
+		homes[(2 * size + geometry.boxOf[cell]) * size + s] &=
+				~(1L << boxPos[cell]);
+	}
+
+	/**
+	 * Queues an empty square left with one candidate, or notes a conflict
+	 * if it has none.
+	 *
+	 * @param cell index of an empty square.
+	 * @param options its candidates.
+	 */
+	private void checkSquare(int cell, long options) {
+		if (options == 0) {
+			conflict = true;
+		} else if ((options & (options - 1)) == 0) {
+			enqueue(cell, Long.numberOfTrailingZeros(options) + 1);
+		}
+	}
+
+	/**
+	 * Queues the square a symbol must go in if it has one home left in a
+	 * unit, or notes a conflict if it has none.  Symbols already placed in
+	 * the unit are left alone.
+	 *
+	 * @param u index into Geometry.units.
+	 * @param s symbol - 1.
+	 */
+	private void checkHomes(int u, int s) {
+		long m = homes[u * size + s];
+		if ((m & (m - 1)) != 0 || (board.free(u) & (1L << s)) == 0) {
+			return;
+		}
+		if (m != 0) {
+			enqueue(geometry.units[u][Long.numberOfTrailingZeros(m)], s + 1);
+		} else {
+			conflict = true;
+		}
+	}
+
+	/**
+	 * Queues a square as forced to a symbol, or notes a conflict if it is
+	 * already forced to another.
+	 *
+	 * @param cell index of an empty square.
+	 * @param val symbol it must take.
+	 */
+	private void enqueue(int cell, int val) {
+		if (forced[cell] == 0) {
+			forced[cell] = val;
+			queue[queueTail++] = cell;
+		} else if (forced[cell] != val) {
+			// one square is the only home of two symbols
+			conflict = true;
+		}
+	}
+
+	/**
+	 * Empties the squares propagation filled since the trail was at mark.
+	 *
+	 * @param mark trail height to go back to.
+	 */
+	private void undo(int mark) {
+		while (trailTop > mark) {
+			unassign(trail[--trailTop]);
+		}
+	}
+}
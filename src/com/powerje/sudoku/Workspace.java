@@ -0,0 +1,74 @@
+package com.powerje.sudoku;
+
+/**
+ * Everything one solve, count, grade or fingerprint needs: an
+ * IterativeSolver, a scratch board, and a Grader and Canonicalizer created
+ * on first use.  All of it is primitive arrays allocated once, and each
+ * engine resets only the state the next call overwrites, so a workspace can
+ * be handed from one request to the next without clearing anything.
+ *
+ * A workspace is used by one thread at a time.  Get one from Workspaces
+ * and give it back when done.
+ */
+public final class Workspace {
+	/** Solver for searches and uniqueness checks. */
+	private final IterativeSolver solver = new IterativeSolver();
+
+	/** Scratch board, row-major. */
+	private final int[] cells = new int[BitBoard.CELLS];
+
+	/** Grader, created on first use. */
+	private Grader grader;
+
+	/** Canonicalizer, created on first use. */
+	private Canonicalizer canonicalizer;
+
+	/** true iff this is a thread's own workspace rather than a pooled one. */
+	final boolean local;
+
+	/** true iff handed out and not yet given back. */
+	boolean busy;
+
+	/**
+	 * Constructor for Workspace.
+	 *
+	 * @param local true iff this is a thread's own workspace.
+	 */
+	Workspace(boolean local) {
+		this.local = local;
+	}
+
+	/**
+	 * @return the solver.
+	 */
+	public IterativeSolver solver() {
+		return solver;
+	}
+
+	/**
+	 * @return scratch board of BitBoard.CELLS squares, contents undefined.
+	 */
+	public int[] cells() {
+		return cells;
+	}
+
+	/**
+	 * @return the grader.
+	 */
+	public Grader grader() {
+		if (grader == null) {
+			grader = new Grader();
+		}
+		return grader;
+	}
+
+	/**
+	 * @return the canonicalizer.
+	 */
+	public Canonicalizer canonicalizer() {
+		if (canonicalizer == null) {
+			canonicalizer = new Canonicalizer();
+		}
+		return canonicalizer;
+	}
+}
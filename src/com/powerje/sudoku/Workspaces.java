@@ -0,0 +1,123 @@
+package com.powerje.sudoku;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out Workspaces without locking.  By default each thread gets its
+ * own workspace, so a fixed set of worker threads allocates nothing after
+ * warm-up.  A workspace asked for while the thread's own one is still out,
+ * e.g. from a callback inside a solve, or by a source with no thread
+ * affinity, comes from a lock-free pool of idle workspaces and is only
+ * allocated when the pool is empty.  At most maxIdle workspaces are kept
+ * idle; the rest are left to the garbage collector.
+ *
+ * Every acquire() must be matched by a release() on the same thread.  All
+ * methods are thread-safe.
+ */
+public final class Workspaces {
+	/** Idle workspaces kept by default. */
+	public static final int DEFAULT_MAX_IDLE = 64;
+
+	/** Workspaces behind shared(), created on first use. */
+	private static Workspaces shared;
+
+	/** Each thread's own workspace, or null when pooling only. */
+	private final ThreadLocal<Workspace> own;
+
+	/** Idle pooled workspaces. */
+	private final ConcurrentLinkedQueue<Workspace> idle =
+			new ConcurrentLinkedQueue<Workspace>();
+
+	/** Number of workspaces in idle, kept apart as size() is linear. */
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+	/** Most idle workspaces kept. */
+	private final int maxIdle;
+
+	/**
+	 * Constructor for Workspaces giving each thread its own workspace and
+	 * keeping DEFAULT_MAX_IDLE idle ones.
+	 */
+	public Workspaces() {
+		this(true, DEFAULT_MAX_IDLE);
+	}
+
+	/**
+	 * Constructor for Workspaces.
+	 *
+	 * @param perThread true to give each thread its own workspace, false to
+	 * serve every acquire() from the pool, e.g. for short-lived threads.
+	 * @param maxIdle most idle workspaces kept in the pool.
+	 */
+	public Workspaces(boolean perThread, int maxIdle) {
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("maxIdle < 0");
+		}
+		this.maxIdle = maxIdle;
+		this.own = !perThread ? null : new ThreadLocal<Workspace>() {
+			@Override
+			protected Workspace initialValue() {
+				return new Workspace(true);
+			}
+		};
+	}
+
+	/**
+	 * @return workspaces shared by the engines of this package.
+	 */
+	public static synchronized Workspaces shared() {
+		if (shared == null) {
+			shared = new Workspaces();
+		}
+		return shared;
+	}
+
+	/**
+	 * Takes a workspace for the calling thread.
+	 *
+	 * @return a workspace no other caller holds.
+	 */
+	public Workspace acquire() {
+		Workspace w;
+		if (own != null) {
+			w = own.get();
+			if (!w.busy) {
+				w.busy = true;
+				return w;
+			}
+		}
+		w = idle.poll();
+		if (w != null) {
+			idleCount.decrementAndGet();
+		} else {
+			w = new Workspace(false);
+		}
+		w.busy = true;
+		return w;
+	}
+
+	/**
+	 * Gives a workspace back.
+	 *
+	 * @param w workspace from acquire(), no longer used by the caller.
+	 */
+	public void release(Workspace w) {
+		w.busy = false;
+		if (w.local) {
+			return;
+		}
+		if (idleCount.incrementAndGet() <= maxIdle) {
+			idle.offer(w);
+		} else {
+			idleCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return number of idle pooled workspaces.
+	 */
+	public int idle() {
+		return idleCount.get();
+	}
+}
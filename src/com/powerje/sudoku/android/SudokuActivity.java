@@ -11,6 +11,8 @@ import android.widget.TableLayout;
 import android.widget.TableRow;
 
 import com.foo.R;
+import com.powerje.sudoku.BitBoard;
+import com.powerje.sudoku.PuzzlePool;
 import com.powerje.sudoku.SudokuController;
 import com.powerje.sudoku.android.views.Square;
 
@@ -23,11 +25,13 @@ public class SudokuActivity extends Activity {
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
+		// start generating while the layout is built
+		PuzzlePool.shared();
 		setContentView(R.layout.main);
 		mGameBoard = (TableLayout) findViewById(R.id.game_board);
 		mRoot = (LinearLayout) findViewById(R.id.root_layout);
 		mSquares = new ArrayList<Square>();
-		createBoard(9);
+		createBoard(BitBoard.SIZE);
 	}
 
 	private void createBoard(int size) {
@@ -44,7 +48,7 @@ public class SudokuActivity extends Activity {
 		rowParams.height = dim;
 		rowParams.width = dim;
 
-		SudokuController sc = new SudokuController();
+		SudokuController sc = new SudokuController(PuzzlePool.shared().take());
 		table = sc.getTable();
 		answer = sc.getAnswer();
 
@@ -70,7 +74,7 @@ public class SudokuActivity extends Activity {
 	}
 
 	private boolean solved;
-	private int[][] table = new int[9][9];
-	private int[][] answer = new int[9][9];
+	private int[][] table = new int[BitBoard.SIZE][BitBoard.SIZE];
+	private int[][] answer = new int[BitBoard.SIZE][BitBoard.SIZE];
 
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.powerje.sudoku.management;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.powerje.sudoku.PuzzlePool;
+import com.powerje.sudoku.SolverMetrics;
+
+/**
+ * Registers the game's metrics with the platform MBean server, e.g. for
+ * jconsole.  Kept out of com.powerje.sudoku because Android has no JMX.
+ */
+public final class Management {
+	/** Name of SolverMetrics.global(). */
+	public static final String METRICS_NAME =
+			"com.powerje.sudoku:type=SolverMetrics";
+
+	/** Name of PuzzlePool.shared(). */
+	public static final String POOL_NAME = "com.powerje.sudoku:type=PuzzlePool";
+
+	/**
+	 * Not instantiable.
+	 */
+	private Management() {
+	}
+
+	/**
+	 * Registers SolverMetrics.global() and PuzzlePool.shared() under
+	 * METRICS_NAME and POOL_NAME, starting the pool if it is not running.
+	 * Registering again is harmless.
+	 *
+	 * @throws JMException if the MBean server refuses them.
+	 */
+	public static void registerDefaults() throws JMException {
+		register(SolverMetrics.global(), METRICS_NAME);
+		register(PuzzlePool.shared(), POOL_NAME);
+	}
+
+	/**
+	 * Registers metrics, replacing whatever was registered under the name.
+	 *
+	 * @param metrics metrics to export.
+	 * @param name JMX object name.
+	 * @throws JMException if the name is bad or the server refuses.
+	 */
+	public static void register(SolverMetrics metrics, String name)
+			throws JMException {
+		register(new SolverMetricsBean(metrics), new ObjectName(name));
+	}
+
+	/**
+	 * Registers a pool, replacing whatever was registered under the name.
+	 *
+	 * @param pool pool to export.
+	 * @param name JMX object name.
+	 * @throws JMException if the name is bad or the server refuses.
+	 */
+	public static void register(PuzzlePool pool, String name)
+			throws JMException {
+		register(new PuzzlePoolBean(pool), new ObjectName(name));
+	}
+
+	/**
+	 * Registers a bean, replacing whatever was registered under the name.
+	 *
+	 * @param bean the bean.
+	 * @param name its name.
+	 * @throws JMException if the server refuses.
+	 */
+	private static void register(Object bean, ObjectName name)
+			throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(bean, name);
+	}
+}
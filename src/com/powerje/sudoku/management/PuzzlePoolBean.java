@@ -0,0 +1,48 @@
+package com.powerje.sudoku.management;
+
+import com.powerje.sudoku.PuzzlePool;
+
+/**
+ * Exports a PuzzlePool over JMX.
+ */
+public final class PuzzlePoolBean implements PuzzlePoolMXBean {
+	/** Pool exported. */
+	private final PuzzlePool pool;
+
+	/**
+	 * Constructor for PuzzlePoolBean.
+	 *
+	 * @param pool pool to export.
+	 */
+	public PuzzlePoolBean(PuzzlePool pool) {
+		this.pool = pool;
+	}
+
+	public int getSize() {
+		return pool.size();
+	}
+
+	public long getHits() {
+		return pool.getHits();
+	}
+
+	public long getMisses() {
+		return pool.getMisses();
+	}
+
+	public double getHitRate() {
+		return pool.getHitRate();
+	}
+
+	public long getRefills() {
+		return pool.getRefills();
+	}
+
+	public long getAverageRefillNanos() {
+		return pool.getAverageRefillNanos();
+	}
+
+	public long getMaxRefillNanos() {
+		return pool.getMaxRefillNanos();
+	}
+}
@@ -0,0 +1,27 @@
+package com.powerje.sudoku.management;
+
+/**
+ * JMX view of a PuzzlePool.  Times are in nanoseconds.
+ */
+public interface PuzzlePoolMXBean {
+	/** @return number of ready puzzles. */
+	int getSize();
+
+	/** @return take() calls served straight from the pool. */
+	long getHits();
+
+	/** @return take() calls that had to wait for a puzzle. */
+	long getMisses();
+
+	/** @return share of take() calls served straight from the pool. */
+	double getHitRate();
+
+	/** @return puzzles generated by the refill thread. */
+	long getRefills();
+
+	/** @return mean time to generate a puzzle. */
+	long getAverageRefillNanos();
+
+	/** @return longest time to generate a puzzle. */
+	long getMaxRefillNanos();
+}
@@ -0,0 +1,84 @@
+package com.powerje.sudoku.management;
+
+import com.powerje.sudoku.SolverMetrics;
+
+/**
+ * Exports a SolverMetrics over JMX.
+ */
+public final class SolverMetricsBean implements SolverMetricsMXBean {
+	/** Metrics exported. */
+	private final SolverMetrics metrics;
+
+	/**
+	 * Constructor for SolverMetricsBean.
+	 *
+	 * @param metrics metrics to export.
+	 */
+	public SolverMetricsBean(SolverMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public long getSolves() {
+		return metrics.getSolves();
+	}
+
+	public long getNodes() {
+		return metrics.getNodes();
+	}
+
+	public long getBacktracks() {
+		return metrics.getBacktracks();
+	}
+
+	public long getMaxDepth() {
+		return metrics.getMaxDepth();
+	}
+
+	public long getPropagated() {
+		return metrics.getPropagated();
+	}
+
+	public long getSolveP50() {
+		return metrics.getSolveLatency().getPercentile(0.5);
+	}
+
+	public long getSolveP99() {
+		return metrics.getSolveLatency().getPercentile(0.99);
+	}
+
+	public long getSolveP999() {
+		return metrics.getSolveLatency().getPercentile(0.999);
+	}
+
+	public long getSolveMax() {
+		return metrics.getSolveLatency().getMax();
+	}
+
+	public long getGenerations() {
+		return metrics.getGenerations();
+	}
+
+	public long getGenerationRetries() {
+		return metrics.getGenerationRetries();
+	}
+
+	public long getGenerateP50() {
+		return metrics.getGenerateLatency().getPercentile(0.5);
+	}
+
+	public long getGenerateP99() {
+		return metrics.getGenerateLatency().getPercentile(0.99);
+	}
+
+	public long getGenerateP999() {
+		return metrics.getGenerateLatency().getPercentile(0.999);
+	}
+
+	public long getGenerateMax() {
+		return metrics.getGenerateLatency().getMax();
+	}
+
+	public void reset() {
+		metrics.reset();
+	}
+}
@@ -0,0 +1,56 @@
+package com.powerje.sudoku.management;
+
+/**
+ * JMX view of a SolverMetrics.  Times are in nanoseconds.
+ */
+public interface SolverMetricsMXBean {
+	/** @return solves recorded. */
+	long getSolves();
+
+	/** @return search nodes over all solves. */
+	long getNodes();
+
+	/** @return backtracks over all solves. */
+	long getBacktracks();
+
+	/** @return deepest search level reached by any solve. */
+	long getMaxDepth();
+
+	/** @return squares filled by propagation over all solves. */
+	long getPropagated();
+
+	/** @return median time per solve. */
+	long getSolveP50();
+
+	/** @return 99th percentile time per solve. */
+	long getSolveP99();
+
+	/** @return 99.9th percentile time per solve. */
+	long getSolveP999();
+
+	/** @return longest solve. */
+	long getSolveMax();
+
+	/** @return puzzles generated. */
+	long getGenerations();
+
+	/** @return grids dropped and started over while generating. */
+	long getGenerationRetries();
+
+	/** @return median time per generated puzzle. */
+	long getGenerateP50();
+
+	/** @return 99th percentile time per generated puzzle. */
+	long getGenerateP99();
+
+	/** @return 99.9th percentile time per generated puzzle. */
+	long getGenerateP999();
+
+	/** @return longest generation. */
+	long getGenerateMax();
+
+	/**
+	 * Forgets everything recorded.
+	 */
+	void reset();
+}
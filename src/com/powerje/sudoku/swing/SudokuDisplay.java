@@ -7,6 +7,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Random;
 
+import javax.management.JMException;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -16,6 +17,11 @@ import javax.swing.JSeparator;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 
+import com.powerje.sudoku.BitBoard;
+import com.powerje.sudoku.PuzzlePool;
+import com.powerje.sudoku.SudokuController;
+import com.powerje.sudoku.management.Management;
+
 /**
  * Display the sudoku game.
  */
@@ -42,6 +48,13 @@ public final class SudokuDisplay {
 	 *            is the arguments passed into main.
 	 */
 	public static void main(final String[] args) {
+		// start generating while the window is built
+		PuzzlePool.shared();
+		try {
+			Management.registerDefaults();
+		} catch (JMException e) {
+			// the game runs fine without monitoring
+		}
 		JFrame window = new SudokuGUI("Sudoku Game");
 		window.setSize(WINDOW_WIDTH, WINDOW_LENGTH);
 		window.setVisible(true);
@@ -61,15 +74,11 @@ class SudokuGUI extends JFrame {
 	/**
 	 * SIZE of the Sudoku board.
 	 */
-	private static final int SIZE = 9;
-	/**
-	 * Position to put the first separator.
-	 */
-	private static final int POS_SEP_1 = 2;
+	private static final int SIZE = BitBoard.SIZE;
 	/**
-	 * Position to put the second separator.
+	 * SIZE of a box of the Sudoku board.
 	 */
-	private static final int POS_SEP_2 = 5;
+	private static final int SMALL_GRID = BitBoard.SMALL_GRID;
 	/**
 	 * Length of the grid panel.
 	 */
@@ -156,7 +165,7 @@ class SudokuGUI extends JFrame {
 			for (int j = 0; j < SIZE; j++) {
 				rows[i].add(numbersF[i][j]);
 				// add the vertical separate line
-				if (j == POS_SEP_1 || j == POS_SEP_2) {
+				if (isBoxEdge(j)) {
 					JSeparator sep = new JSeparator(SwingConstants.VERTICAL);
 					sep.setPreferredSize(new Dimension(SEP_WIDTH, SEP_LENGTH));
 					sep.setBorder(BorderFactory.createLineBorder(Color.BLACK,
@@ -167,7 +176,7 @@ class SudokuGUI extends JFrame {
 
 			grid.add(rows[i]);
 
-			if (i == POS_SEP_1 || i == POS_SEP_2) {
+			if (isBoxEdge(i)) {
 				// add the horizontal separate line
 				JSeparator sep = new JSeparator(SwingConstants.HORIZONTAL);
 				sep.setPreferredSize(new Dimension(SEP_LENGTH, SEP_WIDTH));
@@ -223,11 +232,23 @@ class SudokuGUI extends JFrame {
 		});
 	}
 
+	/**
+	 * Is a separator drawn after this row or column?
+	 * 
+	 * @param i
+	 *            row or column index.
+	 * @return true iff i is the last row or column of a box, but not of
+	 *         the board.
+	 */
+	private static boolean isBoxEdge(int i) {
+		return (i + 1) % SMALL_GRID == 0 && i != SIZE - 1;
+	}
+
 	/**
 	 * generate a new table.
 	 */
 	private void newGame() {
-		SudokuController s = new SudokuController();
+		SudokuController s = new SudokuController(PuzzlePool.shared().take());
 		solved = false;
 		table = s.getTable();
 		answer = s.getAnswer();